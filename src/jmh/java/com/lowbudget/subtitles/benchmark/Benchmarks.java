@@ -0,0 +1,50 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.benchmark;
+
+import java.util.Arrays;
+import org.openjdk.jmh.Main;
+
+/**
+ * Runs the benchmarks with the GC profiler enabled, so every result also reports the allocation
+ * rate. Accepts the same options as the JMH command line.
+ */
+public final class Benchmarks {
+
+  private Benchmarks() {}
+
+  public static void main(String[] args) throws Exception {
+    for (int i = 0; i + 1 < args.length; i++) {
+      if ("-prof".equals(args[i]) && args[i + 1].startsWith("gc")) {
+        Main.main(args);
+        return;
+      }
+    }
+    String[] withProfiler = Arrays.copyOf(args, args.length + 2);
+    withProfiler[args.length] = "-prof";
+    withProfiler[args.length + 1] = "gc";
+    Main.main(withProfiler);
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.benchmark;
+
+import com.lowbudget.subtitles.model.Clock;
+import com.lowbudget.subtitles.model.Listeners;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares firing an event with a capturing lambda to the typed dispatch of {@link Listeners}. Run
+ * with {@code -prof gc} to see the allocation rate of each, the typed dispatch should allocate
+ * nothing. When the JIT manages to inline the whole call, escape analysis can hide the lambda
+ * allocation as well, add {@code -jvmArgsAppend -XX:-DoEscapeAnalysis} to see the worst case.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ListenersBenchmark {
+
+  @Param({"1", "4"})
+  public int listenerCount;
+
+  private final Listeners<Clock.Listener> listeners = new Listeners<>();
+
+  private long elapsed;
+
+  @Setup
+  public void setUp(Blackhole blackhole) {
+    for (int i = 0; i < listenerCount; i++) {
+      listeners.add((elapsedMillis, lastTick) -> blackhole.consume(elapsedMillis));
+    }
+  }
+
+  @Benchmark
+  public void capturingLambda() {
+    long value = elapsed++;
+    boolean lastTick = (value & 1) == 0;
+    listeners.fireEvent(l -> l.onTick(value, lastTick));
+  }
+
+  @Benchmark
+  public void typedDispatch() {
+    long value = elapsed++;
+    boolean lastTick = (value & 1) == 0;
+    listeners.fireEvent(Clock.Listener::onTick, value, lastTick);
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.benchmark;
+
+import com.lowbudget.subtitles.model.Subtitle;
+import com.lowbudget.subtitles.model.SubtitleList;
+import com.lowbudget.subtitles.model.SubtitleLoader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures finding the subtitles at a position. The sequential benchmarks advance the position by
+ * a frame as during playback, the random ones jump to precomputed positions as when seeking.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LookupBenchmark {
+
+  /** the distance between two sequential lookups, about the duration of a frame */
+  private static final int FRAME = 16;
+
+  private static final int RANDOM_POSITIONS = 4096;
+
+  @Param({"1000", "10000", "100000"})
+  public int cues;
+
+  private SubtitleList subtitles;
+
+  private int duration;
+
+  private int position;
+
+  private int[] positions;
+
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    subtitles = SubtitleLoader.load(new ByteArrayInputStream(SrtCorpus.generate(cues)));
+    duration = SrtCorpus.duration(cues);
+
+    Random random = new Random(42);
+    positions = new int[RANDOM_POSITIONS];
+    for (int i = 0; i < positions.length; i++) {
+      positions[i] = random.nextInt(duration);
+    }
+  }
+
+  private int nextSequential() {
+    position += FRAME;
+    if (position >= duration) {
+      position = 0;
+    }
+    return position;
+  }
+
+  private int nextRandom() {
+    next = (next + 1) & (RANDOM_POSITIONS - 1);
+    return positions[next];
+  }
+
+  @Benchmark
+  public Subtitle findSubtitleSequential() {
+    return subtitles.findSubtitle(nextSequential());
+  }
+
+  @Benchmark
+  public Subtitle findSubtitleRandom() {
+    return subtitles.findSubtitle(nextRandom());
+  }
+
+  @Benchmark
+  public List<Subtitle> findActiveSubtitlesSequential() {
+    return subtitles.findActiveSubtitles(nextSequential());
+  }
+
+  @Benchmark
+  public List<Subtitle> findActiveSubtitlesRandom() {
+    return subtitles.findActiveSubtitles(nextRandom());
+  }
+}
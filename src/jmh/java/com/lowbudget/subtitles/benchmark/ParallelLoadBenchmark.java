@@ -0,0 +1,112 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.benchmark;
+
+import com.lowbudget.subtitles.model.SubtitleList;
+import com.lowbudget.subtitles.model.SubtitleLoader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how indexing a large memory mapped file scales with the number of threads. A single
+ * thread uses the sequential indexer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParallelLoadBenchmark {
+
+  @Param({"64"})
+  public int megabytes;
+
+  @Param({"1", "2", "4", "8"})
+  public int threads;
+
+  private File file;
+
+  private ForkJoinPool pool;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    file = File.createTempFile("benchmark", ".srt");
+    file.deleteOnExit();
+
+    long size = megabytes * 1024L * 1024L;
+    try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+      int id = 1;
+      long written = 0;
+      while (written < size) {
+        int start = id * 1000;
+        String cue =
+            id + "\r\n"
+                + time(start) + " --> " + time(start + 800) + "\r\n"
+                + "Subtitle line number " + id + "\r\n"
+                + "with a second line\r\n\r\n";
+        out.write(cue);
+        written += cue.length();
+        id++;
+      }
+    }
+    pool = new ForkJoinPool(threads);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    pool.shutdown();
+    file.delete();
+  }
+
+  private static String time(int millis) {
+    return String.format(
+        "%02d:%02d:%02d,%03d",
+        millis / 3_600_000, millis / 60_000 % 60, millis / 1000 % 60, millis % 1000);
+  }
+
+  @Benchmark
+  public SubtitleList loadMapped() {
+    return SubtitleLoader.loadMapped(file, new SubtitleLoader.Adapter(), pool);
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Generates the SRT files used by the benchmarks. Cues start every second and last 800ms, except
+ * every tenth cue that overlaps the next one, so some positions have more than one active
+ * subtitle.
+ */
+/*package*/ final class SrtCorpus {
+
+  /** the distance between the start of two consecutive cues */
+  /*package*/ static final int CUE_INTERVAL = 1000;
+
+  private SrtCorpus() {}
+
+  /*package*/ static String cue(int id) {
+    int start = id * CUE_INTERVAL;
+    int end = start + (id % 10 == 0 ? 1500 : 800);
+    return id + "\r\n"
+        + time(start) + " --> " + time(end) + "\r\n"
+        + "Subtitle line number " + id + "\r\n"
+        + "with a second line\r\n\r\n";
+  }
+
+  /** Returns the duration covered by a corpus of the specified number of cues */
+  /*package*/ static int duration(int cues) {
+    return (cues + 1) * CUE_INTERVAL;
+  }
+
+  /*package*/ static byte[] generate(int cues) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(cues * 80);
+    try (Writer out = new OutputStreamWriter(bytes, StandardCharsets.UTF_8)) {
+      write(out, cues);
+    }
+    return bytes.toByteArray();
+  }
+
+  /** Writes the corpus to a temporary file that is deleted on exit */
+  /*package*/ static File generateFile(int cues) throws IOException {
+    File file = File.createTempFile("benchmark", ".srt");
+    file.deleteOnExit();
+    try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+      write(out, cues);
+    }
+    return file;
+  }
+
+  private static void write(Writer out, int cues) throws IOException {
+    for (int id = 1; id <= cues; id++) {
+      out.write(cue(id));
+    }
+  }
+
+  /*package*/ static String time(int millis) {
+    return String.format(
+        "%02d:%02d:%02d,%03d",
+        millis / 3_600_000, millis / 60_000 % 60, millis / 1000 % 60, millis % 1000);
+  }
+}
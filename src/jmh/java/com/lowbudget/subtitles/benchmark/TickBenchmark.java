@@ -0,0 +1,122 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.benchmark;
+
+import com.lowbudget.subtitles.model.Clock;
+import com.lowbudget.subtitles.model.ClockTimer;
+import com.lowbudget.subtitles.model.Player;
+import com.lowbudget.subtitles.model.Settings;
+import com.lowbudget.subtitles.model.SubtitleLoader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures a tick of the clock through the player down to its listeners. The timer is fired by the
+ * benchmark itself, a frame at a time, and playback restarts from the beginning when it reaches
+ * the end.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TickBenchmark {
+
+  private static final long FRAME_NANOS = TimeUnit.MILLISECONDS.toNanos(16);
+
+  @Param({"1000", "10000", "100000"})
+  public int cues;
+
+  private final ManualTimer timer = new ManualTimer();
+
+  private Player player;
+
+  @Setup(Level.Trial)
+  public void setUp(Blackhole blackhole) throws IOException {
+    player = new Player(new Clock(() -> timer), new Settings());
+    player.addCueListener(p -> blackhole.consume(p.getActiveSubtitles()));
+    player.addPositionListener(p -> blackhole.consume(p.getElapsedDuration()));
+    player.loadSubtitles(
+        SubtitleLoader.load(new ByteArrayInputStream(SrtCorpus.generate(cues))));
+    player.start();
+  }
+
+  @Benchmark
+  public void tick() {
+    if (!player.isPlaying()) {
+      player.seek(0);
+      player.start();
+    }
+    timer.listener.onTimer(FRAME_NANOS);
+  }
+
+  /** A timer that only ticks when the benchmark fires it */
+  private static class ManualTimer implements ClockTimer {
+
+    private Listener listener;
+
+    private boolean running;
+
+    @Override
+    public void start() {
+      running = true;
+    }
+
+    @Override
+    public void stop() {
+      running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+      return running;
+    }
+
+    @Override
+    public void setListener(Listener listener) {
+      this.listener = listener;
+    }
+
+    @Override
+    public void schedule(int delayMillis) {
+      // the benchmark fires a tick every frame regardless
+    }
+  }
+}
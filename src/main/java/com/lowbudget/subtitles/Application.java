@@ -24,25 +24,30 @@
 
 package com.lowbudget.subtitles;
 
+import com.lowbudget.subtitles.metrics.PlaybackMetrics;
 import com.lowbudget.subtitles.model.Clock;
 import com.lowbudget.subtitles.model.Player;
-import com.lowbudget.subtitles.model.Settings;
+import com.lowbudget.subtitles.model.SettingsStore;
 import com.lowbudget.subtitles.ui.Actions;
 import com.lowbudget.subtitles.ui.MainWindow;
-import com.lowbudget.subtitles.ui.timer.SwingClockTimerFactory;
+import com.lowbudget.subtitles.ui.timer.NanoClockTimerFactory;
 import javax.swing.SwingUtilities;
 
 public class Application {
 
   public static void main(String[] args) {
+    PlaybackMetrics.register();
 
     SwingUtilities.invokeLater(
         () -> {
           // create the clock that drives the player
-          Clock clock = new Clock(SwingClockTimerFactory.newFactory());
+          Clock clock = new Clock(NanoClockTimerFactory.newFactory());
+          clock.setTickMode(Clock.TickMode.CUE_BOUNDARIES);
 
           // player model
-          Player model = new Player(clock, Settings.loadFromFileOrDefault());
+          SettingsStore settingsStore = SettingsStore.newDefault();
+          Player model = new Player(clock, settingsStore.loadOrDefault());
+          model.setSettingsStore(settingsStore);
 
           Actions actions = new Actions(model);
 
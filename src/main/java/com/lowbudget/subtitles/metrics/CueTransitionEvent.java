@@ -0,0 +1,70 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/** A flight recorder event for a change of the displayed subtitles */
+@Name("com.lowbudget.subtitles.CueTransition")
+@Label("Cue Transition")
+@Category("Subtitle Player")
+@Description("A change of the displayed subtitles, which lasts until the cue listeners return")
+@StackTrace(false)
+public class CueTransitionEvent extends Event implements FlightEvents.CueTransition {
+
+  @Label("Position")
+  @Timespan(Timespan.MILLISECONDS)
+  public long elapsed;
+
+  @Label("Subtitles")
+  @Description("The number of subtitles displayed after the change")
+  public int cues;
+
+  @Label("First Subtitle")
+  @Description("The id of the first subtitle displayed or -1 if there is none")
+  public int firstId;
+
+  @Label("Late")
+  @Description("How long after the subtitles should have changed the change was found")
+  @Timespan
+  public long late;
+
+  @Override
+  public void end(long elapsed, int cues, int firstId, long late) {
+    if (shouldCommit()) {
+      this.elapsed = elapsed;
+      this.cues = cues;
+      this.firstId = firstId;
+      this.late = late;
+      commit();
+    }
+  }
+}
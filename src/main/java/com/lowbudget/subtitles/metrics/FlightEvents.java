@@ -0,0 +1,125 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Creates the flight recorder events of the player. The events are only used through the
+ * interfaces of this class, so the {@code jdk.jfr} classes are not loaded on a runtime without a
+ * flight recorder, where {@link #getDefault()} returns an instance that creates no events.
+ *
+ * <p>Each {@code begin} method starts an event, or returns {@code null} while the event is not
+ * being recorded so that nothing is allocated. The event is recorded when its {@code end} method
+ * is called.
+ */
+@Slf4j
+public abstract class FlightEvents {
+
+  private static final FlightEvents DEFAULT = create();
+
+  /** A tick of the clock */
+  public interface Tick {
+    void end(long elapsed, long scheduledDelay, long actualDelay, boolean lastTick);
+  }
+
+  /** A change of the displayed subtitles */
+  public interface CueTransition {
+    void end(long elapsed, int cues, int firstId, long late);
+  }
+
+  /** Painting the displayed subtitles */
+  public interface Paint {
+    void end(int width, int height);
+  }
+
+  /** Moving the player to another position */
+  public interface Seek {
+    void end(long from, long to);
+  }
+
+  /** Loading a subtitles file */
+  public interface Load {
+    void end(String file, long bytes, int cues, boolean cached);
+  }
+
+  public static FlightEvents getDefault() {
+    return DEFAULT;
+  }
+
+  public abstract Tick beginTick();
+
+  public abstract CueTransition beginCueTransition();
+
+  public abstract Paint beginPaint();
+
+  public abstract Seek beginSeek();
+
+  public abstract Load beginLoad();
+
+  private static FlightEvents create() {
+    try {
+      Class.forName("jdk.jfr.FlightRecorder");
+      // loaded by name, so nothing refers to the class unless the flight recorder exists
+      return (FlightEvents)
+          Class.forName(FlightEvents.class.getPackage().getName() + ".JfrFlightEvents")
+              .getDeclaredConstructor()
+              .newInstance();
+    } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+      log.info("The flight recorder is not available, the player events will not be recorded");
+      log.debug("Could not create the flight recorder events", e);
+      return new NoFlightEvents();
+    }
+  }
+
+  /** The events of a runtime without a flight recorder */
+  private static final class NoFlightEvents extends FlightEvents {
+
+    @Override
+    public Tick beginTick() {
+      return null;
+    }
+
+    @Override
+    public CueTransition beginCueTransition() {
+      return null;
+    }
+
+    @Override
+    public Paint beginPaint() {
+      return null;
+    }
+
+    @Override
+    public Seek beginSeek() {
+      return null;
+    }
+
+    @Override
+    public Load beginLoad() {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.metrics;
+
+import java.beans.ConstructorProperties;
+import java.util.Arrays;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A histogram of durations in nanoseconds with a fixed number of buckets. Every power of two is
+ * split in {@value #SUB_BUCKETS} buckets, so the percentiles are accurate to about 12%. Recording
+ * does not allocate, so it can be done on every tick.
+ */
+public class Histogram {
+
+  private static final int SUB_BUCKET_BITS = 3;
+
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  /** enough buckets for any positive long */
+  private static final int BUCKETS = (64 - SUB_BUCKET_BITS) << SUB_BUCKET_BITS;
+
+  private final long[] counts = new long[BUCKETS];
+
+  private long count;
+
+  private long sum;
+
+  private long max;
+
+  /** Records a duration, negative durations are recorded as zero */
+  public synchronized void record(long nanos) {
+    long value = Math.max(0, nanos);
+    counts[bucket(value)]++;
+    count++;
+    sum += value;
+    max = Math.max(max, value);
+  }
+
+  public synchronized void reset() {
+    Arrays.fill(counts, 0);
+    count = 0;
+    sum = 0;
+    max = 0;
+  }
+
+  public synchronized long getCount() {
+    return count;
+  }
+
+  public synchronized long getMaxNanos() {
+    return max;
+  }
+
+  public synchronized double getMeanNanos() {
+    return count == 0 ? 0 : (double) sum / count;
+  }
+
+  /**
+   * Returns the duration that the specified fraction of the recorded durations do not exceed, i.e.
+   * the upper bound of the bucket that contains it.
+   */
+  public synchronized long getPercentileNanos(double fraction) {
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(fraction * count));
+    long seen = 0;
+    for (int b = 0; b < BUCKETS; b++) {
+      seen += counts[b];
+      if (seen >= rank) {
+        long upperBound = b + 1 < BUCKETS ? lowerBound(b + 1) - 1 : Long.MAX_VALUE;
+        return Math.min(max, upperBound);
+      }
+    }
+    return max;
+  }
+
+  public synchronized Snapshot snapshot() {
+    return new Snapshot(
+        count,
+        getMeanNanos() / 1e3,
+        getPercentileNanos(0.5) / 1e3,
+        getPercentileNanos(0.9) / 1e3,
+        getPercentileNanos(0.99) / 1e3,
+        max / 1e3);
+  }
+
+  private static int bucket(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    // the highest bit selects the power of two and the next bits the bucket within it
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return ((exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + sub;
+  }
+
+  private static long lowerBound(int bucket) {
+    int group = bucket >>> SUB_BUCKET_BITS;
+    int sub = bucket & (SUB_BUCKETS - 1);
+    if (group == 0) {
+      return sub;
+    }
+    int exponent = group + SUB_BUCKET_BITS - 1;
+    return (1L << exponent) | ((long) sub << (exponent - SUB_BUCKET_BITS));
+  }
+
+  /** The statistics of a histogram at some point in time, in microseconds */
+  @Getter
+  @ToString
+  public static class Snapshot {
+
+    private final long count;
+
+    private final double meanMicros;
+
+    private final double medianMicros;
+
+    private final double p90Micros;
+
+    private final double p99Micros;
+
+    private final double maxMicros;
+
+    // the properties let the MXBean proxies create snapshots from the attributes
+    @ConstructorProperties({
+      "count", "meanMicros", "medianMicros", "p90Micros", "p99Micros", "maxMicros"
+    })
+    public Snapshot(
+        long count,
+        double meanMicros,
+        double medianMicros,
+        double p90Micros,
+        double p99Micros,
+        double maxMicros) {
+      this.count = count;
+      this.meanMicros = meanMicros;
+      this.medianMicros = medianMicros;
+      this.p90Micros = p90Micros;
+      this.p99Micros = p99Micros;
+      this.maxMicros = maxMicros;
+    }
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.metrics;
+
+import jdk.jfr.EventType;
+
+/**
+ * The events of a runtime with a flight recorder. An event is only created while its type is
+ * enabled, i.e. while a recording that includes it is running.
+ */
+/*package*/ final class JfrFlightEvents extends FlightEvents {
+
+  private final EventType tickType = EventType.getEventType(TickEvent.class);
+  private final EventType cueTransitionType = EventType.getEventType(CueTransitionEvent.class);
+  private final EventType paintType = EventType.getEventType(PaintEvent.class);
+  private final EventType seekType = EventType.getEventType(SeekEvent.class);
+  private final EventType loadType = EventType.getEventType(LoadEvent.class);
+
+  @Override
+  public Tick beginTick() {
+    if (!tickType.isEnabled()) {
+      return null;
+    }
+    TickEvent event = new TickEvent();
+    event.begin();
+    return event;
+  }
+
+  @Override
+  public CueTransition beginCueTransition() {
+    if (!cueTransitionType.isEnabled()) {
+      return null;
+    }
+    CueTransitionEvent event = new CueTransitionEvent();
+    event.begin();
+    return event;
+  }
+
+  @Override
+  public Paint beginPaint() {
+    if (!paintType.isEnabled()) {
+      return null;
+    }
+    PaintEvent event = new PaintEvent();
+    event.begin();
+    return event;
+  }
+
+  @Override
+  public Seek beginSeek() {
+    if (!seekType.isEnabled()) {
+      return null;
+    }
+    SeekEvent event = new SeekEvent();
+    event.begin();
+    return event;
+  }
+
+  @Override
+  public Load beginLoad() {
+    if (!loadType.isEnabled()) {
+      return null;
+    }
+    LoadEvent event = new LoadEvent();
+    event.begin();
+    return event;
+  }
+}
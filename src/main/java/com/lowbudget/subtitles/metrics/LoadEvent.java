@@ -0,0 +1,65 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** A flight recorder event for loading a subtitles file */
+@Name("com.lowbudget.subtitles.Load")
+@Label("Subtitles Load")
+@Category("Subtitle Player")
+@Description("Loading a subtitles file, either by parsing it or from the cache")
+public class LoadEvent extends Event implements FlightEvents.Load {
+
+  @Label("File")
+  public String file;
+
+  @Label("Size")
+  @DataAmount
+  public long bytes;
+
+  @Label("Subtitles")
+  public int cues;
+
+  @Label("Cached")
+  @Description("Whether the subtitles were read from the cache instead of parsing the file")
+  public boolean cached;
+
+  @Override
+  public void end(String file, long bytes, int cues, boolean cached) {
+    if (shouldCommit()) {
+      this.file = file;
+      this.bytes = bytes;
+      this.cues = cues;
+      this.cached = cached;
+      commit();
+    }
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.metrics;
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Collects the metrics of the playback engine. The components record into the {@link
+ * #getDefault() default} instance, which the application registers with the platform MBean
+ * server. Recording does not allocate, so it can be done on every tick.
+ */
+@Slf4j
+public class PlaybackMetrics implements PlaybackMetricsMXBean {
+
+  public static final String OBJECT_NAME = "com.lowbudget.subtitles:type=PlaybackMetrics";
+
+  private static final PlaybackMetrics DEFAULT = new PlaybackMetrics();
+
+  private final Histogram tickJitter = new Histogram();
+
+  private final Histogram cueLatency = new Histogram();
+
+  private final Histogram listenerDispatch = new Histogram();
+
+  private final Histogram lookup = new Histogram();
+
+  private volatile long lastLoadNanos;
+
+  private volatile int lastLoadCueCount;
+
+  public static PlaybackMetrics getDefault() {
+    return DEFAULT;
+  }
+
+  /** Registers the default metrics with the platform MBean server, if not already registered */
+  public static void register() {
+    try {
+      ObjectName name = new ObjectName(OBJECT_NAME);
+      if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(DEFAULT, name);
+      }
+    } catch (JMException e) {
+      log.warn("Could not register the playback metrics", e);
+    }
+  }
+
+  public void recordTickJitter(long lateNanos) {
+    tickJitter.record(lateNanos);
+  }
+
+  public void recordCueLatency(long nanos) {
+    cueLatency.record(nanos);
+  }
+
+  public void recordListenerDispatch(long nanos) {
+    listenerDispatch.record(nanos);
+  }
+
+  public void recordLookup(long nanos) {
+    lookup.record(nanos);
+  }
+
+  public void recordLoad(long nanos, int cueCount) {
+    this.lastLoadNanos = nanos;
+    this.lastLoadCueCount = cueCount;
+  }
+
+  @Override
+  public Histogram.Snapshot getTickJitter() {
+    return tickJitter.snapshot();
+  }
+
+  @Override
+  public Histogram.Snapshot getCueLatency() {
+    return cueLatency.snapshot();
+  }
+
+  @Override
+  public Histogram.Snapshot getListenerDispatch() {
+    return listenerDispatch.snapshot();
+  }
+
+  @Override
+  public Histogram.Snapshot getLookup() {
+    return lookup.snapshot();
+  }
+
+  @Override
+  public double getLastLoadMillis() {
+    return lastLoadNanos / 1e6;
+  }
+
+  @Override
+  public int getLastLoadCueCount() {
+    return lastLoadCueCount;
+  }
+
+  @Override
+  public void reset() {
+    tickJitter.reset();
+    cueLatency.reset();
+    listenerDispatch.reset();
+    lookup.reset();
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.metrics;
+
+/**
+ * The metrics of the playback engine as seen by JMX clients such as JConsole or VisualVM. All
+ * durations are in microseconds.
+ */
+public interface PlaybackMetricsMXBean {
+
+  /** how late the timer ticks fire compared to when they were due */
+  Histogram.Snapshot getTickJitter();
+
+  /** the time from the moment the displayed subtitles should change until they are painted */
+  Histogram.Snapshot getCueLatency();
+
+  /** the time each player listener takes to handle an event */
+  Histogram.Snapshot getListenerDispatch();
+
+  /** the time to find the active subtitles on every tick */
+  Histogram.Snapshot getLookup();
+
+  /** the time the last subtitles file took to load, including reading it from the cache */
+  double getLastLoadMillis();
+
+  /** the number of subtitles in the last loaded file */
+  int getLastLoadCueCount();
+
+  void reset();
+}
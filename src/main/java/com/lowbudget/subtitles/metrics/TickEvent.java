@@ -0,0 +1,70 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/** A flight recorder event for a tick of the clock, which lasts until all listeners return */
+@Name("com.lowbudget.subtitles.Tick")
+@Label("Clock Tick")
+@Category("Subtitle Player")
+@Description("A tick of the clock that drives the player")
+@StackTrace(false)
+public class TickEvent extends Event implements FlightEvents.Tick {
+
+  @Label("Position")
+  @Timespan(Timespan.MILLISECONDS)
+  public long elapsed;
+
+  @Label("Scheduled Delay")
+  @Description("The delay requested for this tick, or zero if it came at the rate of the timer")
+  @Timespan
+  public long scheduledDelay;
+
+  @Label("Actual Delay")
+  @Description("The time since the previous tick or the start as measured by the timer")
+  @Timespan
+  public long actualDelay;
+
+  @Label("Last Tick")
+  public boolean lastTick;
+
+  @Override
+  public void end(long elapsed, long scheduledDelay, long actualDelay, boolean lastTick) {
+    if (shouldCommit()) {
+      this.elapsed = elapsed;
+      this.scheduledDelay = scheduledDelay;
+      this.actualDelay = actualDelay;
+      this.lastTick = lastTick;
+      commit();
+    }
+  }
+}
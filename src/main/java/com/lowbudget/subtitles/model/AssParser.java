@@ -0,0 +1,646 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.model;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A streaming parser for the ASS and SSA formats.
+ *
+ * <p>The styles are parsed once into a table. The events are then parsed one at a time and the
+ * override tags of their text (i.e. <code>{\i1}</code>) are compiled together with the style of the
+ * event into runs of HTML text, which is how the text of all formats is displayed. Each run is
+ * enclosed in the tags of its style, so the text does not need to be parsed again to display it.
+ *
+ * <p>Only the styling that can be displayed by the overlay is kept: bold, italic, underline, strike
+ * out, the primary colour and the alignment. The overlay displays all subtitles in a single block,
+ * so the vertical alignment only places an event above or below the others. Positioning, animation
+ * and drawing commands are dropped.
+ */
+final class AssParser extends LineParser {
+
+  private static final String[] DEFAULT_STYLE_FORMAT = {
+    "name", "fontname", "fontsize", "primarycolour", "secondarycolour", "outlinecolour",
+    "backcolour", "bold", "italic", "underline", "strikeout", "scalex", "scaley", "spacing",
+    "angle", "borderstyle", "outline", "shadow", "alignment", "marginl", "marginr", "marginv",
+    "encoding"
+  };
+
+  private static final String[] DEFAULT_EVENT_FORMAT = {
+    "layer", "start", "end", "style", "name", "marginl", "marginr", "marginv", "effect", "text"
+  };
+
+  private static final int WHITE = 0xFFFFFF;
+
+  /** the numpad position used by events that do not set one */
+  private static final int BOTTOM_CENTER = 2;
+
+  private static final Style DEFAULT_STYLE =
+      new Style("Default", false, false, false, false, WHITE, BOTTOM_CENTER);
+
+  /** the tag that opens the block of the text at each numpad position, null for bottom center */
+  private static final String[] BLOCK_TAGS = new String[9];
+
+  static {
+    String[] horizontal = {" align=\"left\"", "", " align=\"right\""};
+    String[] vertical = {"", " valign=\"middle\"", " valign=\"top\""};
+    for (int position = 1; position <= 9; position++) {
+      if (position != BOTTOM_CENTER) {
+        BLOCK_TAGS[position - 1] =
+            "<div" + horizontal[(position - 1) % 3] + vertical[(position - 1) / 3] + ">";
+      }
+    }
+  }
+
+  private enum Section {
+    OTHER,
+    STYLES,
+    LEGACY_STYLES,
+    EVENTS
+  }
+
+  private Section section = Section.OTHER;
+
+  private String[] styleFormat = DEFAULT_STYLE_FORMAT;
+
+  /** the styles by their name in lower case */
+  private final Map<String, Style> styles = new HashMap<>();
+
+  /** the style of events whose style is not found */
+  private Style firstStyle = DEFAULT_STYLE;
+
+  /** the index of each field in the event lines */
+  private int startField = 1;
+  private int endField = 2;
+  private int styleField = 3;
+  private int fieldCount = DEFAULT_EVENT_FORMAT.length;
+
+  /** the start of each field of the current event line, the text is always the last field */
+  private int[] fieldStarts = new int[DEFAULT_EVENT_FORMAT.length + 1];
+
+  /** the number of events parsed so far */
+  private int count;
+
+  // the style of the text currently compiled
+  private boolean bold;
+  private boolean italic;
+  private boolean underline;
+  private boolean strikeOut;
+  private int color;
+  private int alignment;
+  private int drawingScale;
+
+  // the style of the run currently written, whose tags need to be closed
+  private boolean runOpen;
+  private boolean runBold;
+  private boolean runItalic;
+  private boolean runUnderline;
+  private boolean runStrikeOut;
+  private int runColor;
+
+  AssParser(Reader reader) {
+    super(reader);
+  }
+
+  @Override
+  public boolean next(SubtitleStore.Builder builder) throws IOException {
+    while (readLine()) {
+      int i = skipWhitespace(0);
+      if (i == lineLength || line[i] == ';') {
+        continue;
+      }
+      if (line[i] == '[') {
+        section = parseSection(i);
+        continue;
+      }
+
+      if (section == Section.STYLES || section == Section.LEGACY_STYLES) {
+        if (startsWith(i, "Format:")) {
+          styleFormat = parseFormat(i + "Format:".length());
+        } else if (startsWith(i, "Style:")) {
+          addStyle(parseStyle(i + "Style:".length()));
+        }
+      } else if (section == Section.EVENTS) {
+        if (startsWith(i, "Format:")) {
+          setEventFormat(parseFormat(i + "Format:".length()));
+        } else if (startsWith(i, "Dialogue:")) {
+          parseDialogue(i + "Dialogue:".length(), builder);
+          return true;
+        }
+        // comments and other commands are skipped
+      }
+    }
+    return false;
+  }
+
+  private Section parseSection(int from) {
+    String name = new String(line, from, lineLength - from).trim().toLowerCase(Locale.ROOT);
+    switch (name) {
+      case "[v4+ styles]":
+        return Section.STYLES;
+      case "[v4 styles]":
+        return Section.LEGACY_STYLES;
+      case "[events]":
+        return Section.EVENTS;
+      default:
+        return Section.OTHER;
+    }
+  }
+
+  private boolean startsWith(int from, String prefix) {
+    if (lineLength - from < prefix.length()) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length(); i++) {
+      if (Character.toLowerCase(line[from + i]) != Character.toLowerCase(prefix.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private String[] parseFormat(int from) {
+    String[] fields = new String(line, from, lineLength - from).split(",");
+    for (int i = 0; i < fields.length; i++) {
+      fields[i] = fields[i].trim().toLowerCase(Locale.ROOT);
+    }
+    return fields;
+  }
+
+  private void setEventFormat(String[] format) {
+    List<String> fields = Arrays.asList(format);
+    if (!"text".equals(format[format.length - 1])
+        || !fields.contains("start")
+        || !fields.contains("end")) {
+      throw new SubtitleFormatException(lineNumber, "Invalid event format: " + currentLine());
+    }
+    startField = fields.indexOf("start");
+    endField = fields.indexOf("end");
+    styleField = fields.indexOf("style");
+    fieldCount = format.length;
+    fieldStarts = new int[fieldCount + 1];
+  }
+
+  private void addStyle(Style style) {
+    if (styles.isEmpty()) {
+      firstStyle = style;
+    }
+    // the first of styles with the same name is used
+    styles.putIfAbsent(style.name.toLowerCase(Locale.ROOT), style);
+  }
+
+  private Style parseStyle(int from) {
+    // the name is the only text field, so the values can be split at every comma
+    String[] values = new String(line, from, lineLength - from).split(",", -1);
+    String name = field(values, "name", DEFAULT_STYLE.name);
+    boolean isBold = parseFlag(field(values, "bold", "0"));
+    boolean isItalic = parseFlag(field(values, "italic", "0"));
+    boolean isUnderline = parseFlag(field(values, "underline", "0"));
+    boolean isStrikeOut = parseFlag(field(values, "strikeout", "0"));
+    int primaryColor = parseColor(field(values, "primarycolour", "&H00FFFFFF"));
+    int position = parseNumber(field(values, "alignment", "2"), BOTTOM_CENTER);
+    if (section == Section.LEGACY_STYLES) {
+      position = fromLegacyAlignment(position);
+    }
+    return new Style(name, isBold, isItalic, isUnderline, isStrikeOut, primaryColor, position);
+  }
+
+  private String field(String[] values, String name, String defaultValue) {
+    for (int i = 0; i < styleFormat.length && i < values.length; i++) {
+      if (styleFormat[i].equals(name)) {
+        return values[i].trim();
+      }
+    }
+    return defaultValue;
+  }
+
+  /** Flags are -1 when set, but any number other than zero is accepted */
+  private static boolean parseFlag(String value) {
+    return parseNumber(value, 0) != 0;
+  }
+
+  private static int parseNumber(String value, int defaultValue) {
+    try {
+      return Integer.parseInt(value.trim());
+    } catch (NumberFormatException e) {
+      return defaultValue;
+    }
+  }
+
+  /** Converts a colour in either the &amp;HAABBGGRR or the decimal format to RGB */
+  private static int parseColor(String value) {
+    String digits = value.trim();
+    long bgr;
+    try {
+      if (digits.startsWith("&H") || digits.startsWith("&h")) {
+        digits = digits.substring(2).replace("&", "");
+        bgr = Long.parseLong(digits, 16);
+      } else {
+        bgr = Long.parseLong(digits);
+      }
+    } catch (NumberFormatException e) {
+      return WHITE;
+    }
+    return toRgb((int) bgr);
+  }
+
+  private static int toRgb(int bgr) {
+    return ((bgr & 0xFF) << 16) | (bgr & 0xFF00) | ((bgr >> 16) & 0xFF);
+  }
+
+  /** Converts the SSA alignment (1-3 bottom, 5-7 top, 9-11 middle) to a numpad position */
+  private static int fromLegacyAlignment(int legacy) {
+    int horizontal = (legacy - 1) % 4;
+    if (legacy < 1 || horizontal > 2) {
+      return BOTTOM_CENTER;
+    }
+    if (legacy >= 9) {
+      return horizontal + 4;
+    }
+    return legacy >= 5 ? horizontal + 7 : horizontal + 1;
+  }
+
+  private void parseDialogue(int from, SubtitleStore.Builder builder) {
+    // all fields except the last are separated by commas, the text may contain commas
+    fieldStarts[0] = from;
+    int field = 1;
+    for (int i = from; i < lineLength && field < fieldCount; i++) {
+      if (line[i] == ',') {
+        fieldStarts[field++] = i + 1;
+      }
+    }
+    if (field < fieldCount) {
+      throw new SubtitleFormatException(lineNumber, "Invalid event: " + currentLine());
+    }
+    fieldStarts[fieldCount] = lineLength + 1;
+
+    int start = parseTime(fieldStarts[startField], fieldStarts[startField + 1] - 1);
+    int end = parseTime(fieldStarts[endField], fieldStarts[endField + 1] - 1);
+    Style style =
+        styleField < 0
+            ? DEFAULT_STYLE
+            : findStyle(fieldStarts[styleField], fieldStarts[styleField + 1] - 1);
+
+    compileText(fieldStarts[fieldCount - 1], lineLength, style);
+    addTrimmedText(builder, ++count, start, end);
+  }
+
+  /** Parses a timestamp in the H:MM:SS.cc format and returns it in milliseconds */
+  private int parseTime(int from, int to) {
+    int i = skipWhitespace(from);
+    int hours = 0;
+    int digits = 0;
+    while (i < to && isDigit(line[i])) {
+      hours = hours * 10 + (line[i++] - '0');
+      digits++;
+    }
+    if (digits == 0 || !expect(i, ':')) {
+      throw invalidTime();
+    }
+    int minutes = twoDigits(i + 1);
+    if (!expect(i + 3, ':')) {
+      throw invalidTime();
+    }
+    int seconds = twoDigits(i + 4);
+    i += 6;
+    if (!expect(i, '.')) {
+      throw invalidTime();
+    }
+    i++;
+    int millis = 0;
+    int scale = 100;
+    while (i < to && isDigit(line[i]) && scale > 0) {
+      millis += (line[i++] - '0') * scale;
+      scale /= 10;
+    }
+    if (scale == 100 || minutes > 59 || seconds > 59) {
+      throw invalidTime();
+    }
+    return ((hours * 60 + minutes) * 60 + seconds) * 1000 + millis;
+  }
+
+  /** Finds the style whose name is in the line between the positions */
+  private Style findStyle(int from, int to) {
+    int start = skipWhitespace(from);
+    // a leading '*' is added by some editors and is not part of the name
+    if (start < to && line[start] == '*') {
+      start++;
+    }
+    int end = to;
+    while (end > start && line[end - 1] <= ' ') {
+      end--;
+    }
+    Style style = styles.get(new String(line, start, end - start).toLowerCase(Locale.ROOT));
+    return style != null ? style : firstStyle;
+  }
+
+  private void applyStyle(Style style) {
+    bold = style.bold;
+    italic = style.italic;
+    underline = style.underline;
+    strikeOut = style.strikeOut;
+    color = style.color;
+  }
+
+  /** Compiles the text of an event in the line between the positions into the text buffer */
+  private void compileText(int from, int to, Style style) {
+    textLength = 0;
+    applyStyle(style);
+    alignment = style.alignment;
+    drawingScale = 0;
+    runOpen = false;
+
+    int i = from;
+    while (i < to) {
+      char c = line[i];
+      if (c == '{') {
+        int close = indexOf('}', i + 1, to);
+        if (close > 0) {
+          parseOverrides(i + 1, close, style);
+          i = close + 1;
+          continue;
+        }
+      }
+      if (drawingScale > 0) {
+        // the text is a vector drawing
+        i++;
+        continue;
+      }
+      if (c == '\\' && i + 1 < to) {
+        char escaped = line[i + 1];
+        if (escaped == 'N') {
+          append('\n');
+          i += 2;
+          continue;
+        } else if (escaped == 'n') {
+          // a soft line break, the overlay wraps lines itself
+          appendText(' ');
+          i += 2;
+          continue;
+        } else if (escaped == 'h') {
+          syncRun();
+          append("&nbsp;");
+          i += 2;
+          continue;
+        }
+      }
+      appendText(c);
+      i++;
+    }
+    closeRun();
+    alignText();
+  }
+
+  /** Parses the override tags between the positions, which exclude the braces */
+  private void parseOverrides(int from, int to, Style style) {
+    int i = indexOf('\\', from, to);
+    while (i >= 0) {
+      // the arguments end at the next tag, except those in parentheses (i.e. \t(\i1))
+      int end = i + 1;
+      int depth = 0;
+      while (end < to && (depth > 0 || line[end] != '\\')) {
+        if (line[end] == '(') {
+          depth++;
+        } else if (line[end] == ')') {
+          depth--;
+        }
+        end++;
+      }
+      applyTag(i + 1, end, style);
+      i = end < to ? end : -1;
+    }
+  }
+
+  /** Applies the tag between the positions, which exclude the backslash */
+  private void applyTag(int from, int to, Style style) {
+    if (tagIs(from, to, "an")) {
+      int position = argument(from + 2, to, 0);
+      if (position >= 1 && position <= 9) {
+        alignment = position;
+      }
+    } else if (tagIs(from, to, "a")) {
+      alignment = fromLegacyAlignment(argument(from + 1, to, 2));
+    } else if (tagIs(from, to, "i")) {
+      italic = argument(from + 1, to, style.italic ? 1 : 0) != 0;
+    } else if (tagIs(from, to, "b")) {
+      // either 0/1 or a font weight
+      int weight = argument(from + 1, to, style.bold ? 1 : 0);
+      bold = weight == 1 || weight >= 600;
+    } else if (tagIs(from, to, "u")) {
+      underline = argument(from + 1, to, style.underline ? 1 : 0) != 0;
+    } else if (tagIs(from, to, "s")) {
+      strikeOut = argument(from + 1, to, style.strikeOut ? 1 : 0) != 0;
+    } else if (tagIs(from, to, "p")) {
+      drawingScale = argument(from + 1, to, 0);
+    } else if (hasPrefix(from, to, "1c") || hasPrefix(from, to, "c&") || tagIs(from, to, "c")) {
+      int start = line[from] == '1' ? from + 2 : from + 1;
+      color = start < to ? parseColor(new String(line, start, to - start)) : style.color;
+    } else if (hasPrefix(from, to, "r")) {
+      String name = new String(line, from + 1, to - from - 1).trim();
+      applyStyle(name.isEmpty() ? style : findStyleByName(name, style));
+    }
+    // other tags (position, fonts, borders, animations etc.) are not supported
+  }
+
+  private Style findStyleByName(String name, Style defaultStyle) {
+    Style style = styles.get(name.toLowerCase(Locale.ROOT));
+    return style != null ? style : defaultStyle;
+  }
+
+  /** Checks whether the tag has the name and is followed by a numeric argument or nothing */
+  private boolean tagIs(int from, int to, String name) {
+    int end = from + name.length();
+    return hasPrefix(from, to, name) && (end >= to || isDigit(line[end]) || line[end] == '-');
+  }
+
+  private boolean hasPrefix(int from, int to, String prefix) {
+    if (to - from < prefix.length()) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length(); i++) {
+      if (line[from + i] != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Parses the numeric argument of a tag or returns the default value if there is none */
+  private int argument(int from, int to, int defaultValue) {
+    int i = skipWhitespace(from);
+    int value = 0;
+    int digits = 0;
+    while (i < to && isDigit(line[i])) {
+      value = value * 10 + (line[i++] - '0');
+      digits++;
+    }
+    return digits == 0 ? defaultValue : value;
+  }
+
+  private int indexOf(char c, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (line[i] == c) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /** Appends a character of the event text, escaping the characters that are special in HTML */
+  private void appendText(char c) {
+    syncRun();
+    if (c == '<') {
+      append("&lt;");
+    } else if (c == '>') {
+      append("&gt;");
+    } else if (c == '&') {
+      append("&amp;");
+    } else {
+      append(c);
+    }
+  }
+
+  /** Starts a new run if the style has changed since the current run started */
+  private void syncRun() {
+    if (runOpen
+        && runBold == bold
+        && runItalic == italic
+        && runUnderline == underline
+        && runStrikeOut == strikeOut
+        && runColor == color) {
+      return;
+    }
+    closeRun();
+    runOpen = true;
+    runBold = bold;
+    runItalic = italic;
+    runUnderline = underline;
+    runStrikeOut = strikeOut;
+    runColor = color;
+    if (runColor != WHITE) {
+      append("<font color=\"#");
+      for (int shift = 20; shift >= 0; shift -= 4) {
+        append(Character.forDigit((runColor >> shift) & 0xF, 16));
+      }
+      append("\">");
+    }
+    if (runBold) {
+      append("<b>");
+    }
+    if (runItalic) {
+      append("<i>");
+    }
+    if (runUnderline) {
+      append("<u>");
+    }
+    if (runStrikeOut) {
+      append("<s>");
+    }
+  }
+
+  private void closeRun() {
+    if (!runOpen) {
+      return;
+    }
+    runOpen = false;
+    if (runStrikeOut) {
+      append("</s>");
+    }
+    if (runUnderline) {
+      append("</u>");
+    }
+    if (runItalic) {
+      append("</i>");
+    }
+    if (runBold) {
+      append("</b>");
+    }
+    if (runColor != WHITE) {
+      append("</font>");
+    }
+  }
+
+  /** Encloses the text in a block aligned like the event if it is not at the bottom center */
+  private void alignText() {
+    if (alignment < 1 || alignment > 9 || BLOCK_TAGS[alignment - 1] == null || textLength == 0) {
+      return;
+    }
+    String open = BLOCK_TAGS[alignment - 1];
+    String close = "</div>";
+    ensureTextCapacity(textLength + open.length() + close.length());
+    System.arraycopy(text, 0, text, open.length(), textLength);
+    open.getChars(0, open.length(), text, 0);
+    textLength += open.length();
+    append(close);
+  }
+
+  private void append(char c) {
+    ensureTextCapacity(textLength + 1);
+    text[textLength++] = c;
+  }
+
+  private void append(String s) {
+    ensureTextCapacity(textLength + s.length());
+    s.getChars(0, s.length(), text, textLength);
+    textLength += s.length();
+  }
+
+  /** A style of the style table */
+  private static final class Style {
+
+    private final String name;
+    private final boolean bold;
+    private final boolean italic;
+    private final boolean underline;
+    private final boolean strikeOut;
+    private final int color;
+
+    /** the position of the text as in a numpad, i.e. 2 is bottom center */
+    private final int alignment;
+
+    Style(
+        String name,
+        boolean bold,
+        boolean italic,
+        boolean underline,
+        boolean strikeOut,
+        int color,
+        int alignment) {
+      this.name = name;
+      this.bold = bold;
+      this.italic = italic;
+      this.underline = underline;
+      this.strikeOut = strikeOut;
+      this.color = color;
+      this.alignment = alignment;
+    }
+  }
+}
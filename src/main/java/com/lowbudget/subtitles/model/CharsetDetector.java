@@ -0,0 +1,222 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.model;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import lombok.Getter;
+
+/**
+ * Detects the encoding of a subtitles file from its first bytes.
+ *
+ * <p>A byte order mark always wins. Without one, a file is considered UTF-16 if every other byte is
+ * zero and UTF-8 if the sample is valid UTF-8. Otherwise the file uses a legacy single byte
+ * encoding, which is chosen by decoding the sample with each candidate and scoring the result:
+ * letters of the expected alphabet count for it, control characters count heavily against it and
+ * the most common letters of each language get a bonus, which is what tells apart Greek and
+ * Cyrillic encodings that map letters to the same byte ranges.
+ */
+final class CharsetDetector {
+
+  /** the number of bytes examined */
+  static final int SAMPLE_SIZE = 16 * 1024;
+
+  private static final Charset WESTERN = Charset.forName("windows-1252");
+
+  private static final Candidate[] CANDIDATES = {
+    new Candidate("windows-1253", Character.UnicodeBlock.GREEK, "αεοιτνσςηκυ"),
+    new Candidate("ISO-8859-7", Character.UnicodeBlock.GREEK, "αεοιτνσςηκυ"),
+    new Candidate("windows-1251", Character.UnicodeBlock.CYRILLIC, "оеаинтсрвлк"),
+    new Candidate("ISO-8859-5", Character.UnicodeBlock.CYRILLIC, "оеаинтсрвлк"),
+    new Candidate("KOI8-R", Character.UnicodeBlock.CYRILLIC, "оеаинтсрвлк"),
+  };
+
+  /**
+   * if fewer of the letters than this are outside ASCII the text is in a latin alphabet with a few
+   * accented letters, rather than an alphabet that is entirely outside ASCII
+   */
+  private static final double NON_ASCII_LETTER_RATIO = 0.3;
+
+  @Getter private final Charset charset;
+
+  /** the length of the byte order mark that needs to be skipped */
+  @Getter private final int bomLength;
+
+  private CharsetDetector(Charset charset, int bomLength) {
+    this.charset = charset;
+    this.bomLength = bomLength;
+  }
+
+  /** Detects the encoding of the bytes remaining in the buffer. The buffer is not modified */
+  static CharsetDetector detect(ByteBuffer sample) {
+    ByteBuffer bytes = sample.duplicate();
+    if (bytes.remaining() > SAMPLE_SIZE) {
+      // through Buffer, ByteBuffer.limit(int) does not exist before Java 9
+      ((Buffer) bytes).limit(bytes.position() + SAMPLE_SIZE);
+    }
+    int start = bytes.position();
+    int length = bytes.remaining();
+
+    if (length >= 3 && unsigned(bytes, start) == 0xEF && unsigned(bytes, start + 1) == 0xBB
+        && unsigned(bytes, start + 2) == 0xBF) {
+      return new CharsetDetector(StandardCharsets.UTF_8, 3);
+    }
+    if (length >= 2 && unsigned(bytes, start) == 0xFF && unsigned(bytes, start + 1) == 0xFE) {
+      return new CharsetDetector(StandardCharsets.UTF_16LE, 2);
+    }
+    if (length >= 2 && unsigned(bytes, start) == 0xFE && unsigned(bytes, start + 1) == 0xFF) {
+      return new CharsetDetector(StandardCharsets.UTF_16BE, 2);
+    }
+
+    Charset utf16 = detectUtf16(bytes, start, length);
+    if (utf16 != null) {
+      return new CharsetDetector(utf16, 0);
+    }
+    if (isUtf8(bytes, start, length)) {
+      return new CharsetDetector(StandardCharsets.UTF_8, 0);
+    }
+    return new CharsetDetector(detectSingleByte(bytes), 0);
+  }
+
+  private static int unsigned(ByteBuffer bytes, int index) {
+    return bytes.get(index) & 0xff;
+  }
+
+  /** Subtitles are mostly ASCII, so in UTF-16 either the odd or the even bytes are mostly zero */
+  private static Charset detectUtf16(ByteBuffer bytes, int start, int length) {
+    int evenZeros = 0;
+    int oddZeros = 0;
+    for (int i = 0; i < length; i++) {
+      if (bytes.get(start + i) == 0) {
+        if (i % 2 == 0) {
+          evenZeros++;
+        } else {
+          oddZeros++;
+        }
+      }
+    }
+    int half = length / 2;
+    if (half > 0 && oddZeros > half * 0.7 && evenZeros < half * 0.1) {
+      return StandardCharsets.UTF_16LE;
+    }
+    if (half > 0 && evenZeros > half * 0.7 && oddZeros < half * 0.1) {
+      return StandardCharsets.UTF_16BE;
+    }
+    return null;
+  }
+
+  /** Validates the UTF-8 sequences. A sequence cut off at the end of the sample is accepted */
+  private static boolean isUtf8(ByteBuffer bytes, int start, int length) {
+    int end = start + length;
+    int i = start;
+    while (i < end) {
+      int b = unsigned(bytes, i++);
+      int continuation;
+      if (b < 0x80) {
+        continue;
+      } else if (b >= 0xC2 && b <= 0xDF) {
+        continuation = 1;
+      } else if (b >= 0xE0 && b <= 0xEF) {
+        continuation = 2;
+      } else if (b >= 0xF0 && b <= 0xF4) {
+        continuation = 3;
+      } else {
+        return false;
+      }
+      for (int k = 0; k < continuation && i < end; k++) {
+        if ((unsigned(bytes, i++) & 0xC0) != 0x80) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static Charset detectSingleByte(ByteBuffer bytes) {
+    // decode once as Western to find out how much of the text is outside ASCII
+    CharBuffer western = WESTERN.decode(bytes.duplicate());
+    int letters = 0;
+    int nonAsciiLetters = 0;
+    for (int i = 0; i < western.length(); i++) {
+      char c = western.get(i);
+      if (Character.isLetter(c)) {
+        letters++;
+        if (c >= 0x80) {
+          nonAsciiLetters++;
+        }
+      }
+    }
+    if (letters == 0 || nonAsciiLetters < letters * NON_ASCII_LETTER_RATIO) {
+      return WESTERN;
+    }
+
+    Charset best = WESTERN;
+    int bestScore = 0;
+    for (Candidate candidate : CANDIDATES) {
+      if (candidate.charset == null) {
+        continue;
+      }
+      int score = candidate.score(candidate.charset.decode(bytes.duplicate()));
+      if (score > bestScore) {
+        best = candidate.charset;
+        bestScore = score;
+      }
+    }
+    return best;
+  }
+
+  private static class Candidate {
+
+    private final Charset charset;
+    private final Character.UnicodeBlock alphabet;
+    private final String commonLetters;
+
+    Candidate(String charsetName, Character.UnicodeBlock alphabet, String commonLetters) {
+      // not every runtime is required to support the legacy encodings
+      this.charset = Charset.isSupported(charsetName) ? Charset.forName(charsetName) : null;
+      this.alphabet = alphabet;
+      this.commonLetters = commonLetters;
+    }
+
+    int score(CharBuffer text) {
+      int score = 0;
+      for (int i = 0; i < text.length(); i++) {
+        char c = text.get(i);
+        if (c < 0x80) {
+          continue;
+        }
+        if (Character.isISOControl(c) || c == '\uFFFD') {
+          score -= 10;
+        } else if (Character.UnicodeBlock.of(c) == alphabet) {
+          score += commonLetters.indexOf(Character.toLowerCase(c)) >= 0 ? 3 : 1;
+        }
+      }
+      return score;
+    }
+  }
+}
@@ -24,13 +24,21 @@
 
 package com.lowbudget.subtitles.model;
 
+import com.lowbudget.subtitles.metrics.FlightEvents;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class Clock {
 
   public int getElapsedDuration() {
-    return this.elapsedDuration;
+    return (int) TimeUnit.NANOSECONDS.toMillis(this.elapsedNanos);
+  }
+
+  /** The elapsed duration with the full precision of the timer */
+  public long getElapsedNanos() {
+    return this.elapsedNanos;
   }
 
   public int getTotalDuration() {
@@ -41,14 +49,43 @@ public class Clock {
     void onTick(long elapsedMillis, boolean lastTick);
   }
 
+  /** How the clock decides when to tick */
+  public enum TickMode {
+    /** tick at the interval of the timer */
+    FIXED_RATE,
+
+    /**
+     * tick exactly when the displayed subtitles change and at the {@link #PROGRESS_INTERVAL} in
+     * between, so the progress is still updated but the timer is idle between subtitles
+     */
+    CUE_BOUNDARIES
+  }
+
+  /** the longest time between two ticks in the {@link TickMode#CUE_BOUNDARIES} mode */
+  public static final int PROGRESS_INTERVAL = 500;
+
   private final Listeners<Listener> clockListeners = new Listeners<>();
 
-  private int elapsedDuration;
+  /**
+   * the position is kept in nanoseconds and only rounded when read in milliseconds, so the ticks
+   * of the timer add up without rounding errors
+   */
+  private long elapsedNanos;
 
   private int totalDuration;
 
   private final ClockTimer timer;
 
+  private final FlightEvents flightEvents = FlightEvents.getDefault();
+
+  private TickMode tickMode = TickMode.FIXED_RATE;
+
+  /** finds the next elapsed duration at which the displayed subtitles change */
+  private IntUnaryOperator nextChange;
+
+  /** the delay of the next tick if it was scheduled or zero if it comes at the timer's rate */
+  private long scheduledDelayNanos;
+
   public Clock(ClockTimer.Factory timerFactory) {
     this.timer = timerFactory.createTimer();
     this.timer.setListener(this::doTick);
@@ -58,10 +95,25 @@ public class Clock {
     this.clockListeners.add(listener);
   }
 
+  public TickMode getTickMode() {
+    return this.tickMode;
+  }
+
+  public void setTickMode(TickMode tickMode) {
+    this.tickMode = tickMode;
+    scheduleNextTick();
+  }
+
+  /*package*/ void setNextChange(IntUnaryOperator nextChange) {
+    this.nextChange = nextChange;
+    scheduleNextTick();
+  }
+
   public void start() {
     if (!timer.isRunning()) {
       log.debug("Clock started");
       timer.start();
+      scheduleNextTick();
     }
   }
 
@@ -78,30 +130,63 @@ public class Clock {
 
   /*package*/ void init(int totalDuration) {
     this.totalDuration = totalDuration;
-    this.elapsedDuration = 0;
+    this.elapsedNanos = 0;
+  }
+
+  /*package*/ void setTotalDuration(int totalDuration) {
+    this.totalDuration = totalDuration;
   }
 
   /*package*/ void setElapsedDuration(int elapsed) {
-    this.elapsedDuration = elapsed;
-    if (elapsedDuration > totalDuration) {
-      elapsedDuration = totalDuration;
+    this.elapsedNanos = TimeUnit.MILLISECONDS.toNanos(elapsed);
+    if (elapsed > totalDuration) {
+      elapsedNanos = TimeUnit.MILLISECONDS.toNanos(totalDuration);
       stop();
     }
+    scheduleNextTick();
   }
 
-  private void doTick(long elapsedMillis) {
-    this.elapsedDuration += elapsedMillis;
+  /** Schedules the next tick at the next change of the displayed subtitles, if in that mode */
+  private void scheduleNextTick() {
+    if (tickMode != TickMode.CUE_BOUNDARIES || !timer.isRunning()) {
+      return;
+    }
+    // the clock also needs to tick at the end to stop
+    int next = totalDuration;
+    if (nextChange != null) {
+      next = Math.min(next, nextChange.applyAsInt(getElapsedDuration()));
+    }
+    int delay = Math.max(1, Math.min(PROGRESS_INTERVAL, next - getElapsedDuration()));
+    this.scheduledDelayNanos = TimeUnit.MILLISECONDS.toNanos(delay);
+    timer.schedule(delay);
+  }
+
+  private void doTick(long tickNanos) {
+    // events are only created while they are recorded, so a tick does not allocate otherwise
+    FlightEvents.Tick event = flightEvents.beginTick();
+    long scheduledDelay = this.scheduledDelayNanos;
+    this.scheduledDelayNanos = 0;
+    int previous = getElapsedDuration();
+    this.elapsedNanos += tickNanos;
 
     boolean lastTick = false;
-    if (this.elapsedDuration > totalDuration) {
-      this.elapsedDuration = totalDuration;
+    if (getElapsedDuration() > totalDuration) {
+      this.elapsedNanos = TimeUnit.MILLISECONDS.toNanos(totalDuration);
     }
-    log.trace("Tick: clock elapsed duration: {}", this.elapsedDuration);
-    if (this.elapsedDuration >= totalDuration) {
+    if (log.isTraceEnabled()) {
+      // checked first since boxing the duration allocates
+      log.trace("Tick: clock elapsed duration: {}", getElapsedDuration());
+    }
+    if (getElapsedDuration() >= totalDuration) {
       stop();
       lastTick = true;
     }
-    final boolean isLastTick = lastTick;
-    clockListeners.fireEvent(l -> l.onTick(elapsedMillis, isLastTick));
+    long elapsedMillis = getElapsedDuration() - previous;
+    clockListeners.fireEvent(Listener::onTick, elapsedMillis, lastTick);
+    scheduleNextTick();
+
+    if (event != null) {
+      event.end(getElapsedDuration(), scheduledDelay, tickNanos, lastTick);
+    }
   }
 }
@@ -33,11 +33,18 @@ public interface ClockTimer {
 
   void setListener(Listener listener);
 
+  /**
+   * Fires the next tick after the specified delay instead of the timer's interval. The ticks after
+   * it follow the interval again, unless they are scheduled too.
+   */
+  void schedule(int delayMillis);
+
   interface Factory {
     ClockTimer createTimer();
   }
 
   interface Listener {
-    void onTimer(long elapsedMillis);
+    /** Called on every tick with the time since the previous tick or the start */
+    void onTimer(long elapsedNanos);
   }
 }
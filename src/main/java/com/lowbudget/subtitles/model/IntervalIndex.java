@@ -0,0 +1,225 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.model;
+
+import java.util.Arrays;
+
+/**
+ * A static centered interval tree over the subtitle durations. It is built once when the subtitles
+ * are loaded and answers which subtitles are displayed at a specific time in O(log n + k) where k
+ * is the number of subtitles returned.
+ *
+ * <p>The tree is stored in flat arrays: each node keeps its center and a slice of the {@link
+ * #byStart} and {@link #byEnd} arrays with the subtitles that contain the center.
+ */
+final class IntervalIndex {
+
+  private final int[] starts;
+  private final int[] ends;
+
+  private final int[] centers;
+  private final int[] left;
+  private final int[] right;
+  private final int[] offsets;
+  private final int[] counts;
+
+  /** subtitle indices of each node sorted by start time ascending */
+  private final int[] byStart;
+
+  /** subtitle indices of each node sorted by end time descending */
+  private final int[] byEnd;
+
+  /** all start times sorted, used to find the next subtitle that will be displayed */
+  private final int[] sortedStarts;
+
+  /** the subtitle indices in the order of {@link #sortedStarts} */
+  private final int[] startOrder;
+
+  private final int root;
+
+  private int nodeCount;
+
+  private int sliceCount;
+
+  IntervalIndex(int[] starts, int[] ends) {
+    this.starts = starts;
+    this.ends = ends;
+
+    int size = starts.length;
+    // every node keeps at least one interval so there cannot be more nodes than intervals
+    this.centers = new int[size];
+    this.left = new int[size];
+    this.right = new int[size];
+    this.offsets = new int[size];
+    this.counts = new int[size];
+    this.byStart = new int[size];
+    this.byEnd = new int[size];
+
+    this.sortedStarts = starts.clone();
+    Arrays.sort(sortedStarts);
+
+    // the intervals are kept sorted by start at every level of the tree
+    this.startOrder = sortByStart(starts);
+
+    // subtitles that end before they start are never displayed, so they are left out of the tree.
+    // every other interval contains its own start, so the median always stays in its node
+    int[] displayed = new int[size];
+    int displayedCount = 0;
+    for (int i : startOrder) {
+      if (ends[i] >= starts[i]) {
+        displayed[displayedCount++] = i;
+      }
+    }
+    this.root = build(displayed, displayedCount);
+  }
+
+  private static int[] sortByStart(int[] starts) {
+    long[] keys = new long[starts.length];
+    for (int i = 0; i < starts.length; i++) {
+      keys[i] = ((long) starts[i] << 32) | i;
+    }
+    Arrays.sort(keys);
+    int[] sorted = new int[starts.length];
+    for (int i = 0; i < keys.length; i++) {
+      sorted[i] = (int) keys[i];
+    }
+    return sorted;
+  }
+
+  private int build(int[] intervals, int size) {
+    if (size == 0) {
+      return -1;
+    }
+
+    // the start of the median interval splits the rest in two roughly equal halves
+    int center = starts[intervals[size / 2]];
+
+    // partition the intervals in three groups: the ones that end before the center, the ones that
+    // start after the center and the ones that contain it
+    int[] before = new int[size];
+    int[] after = new int[size];
+    int beforeCount = 0;
+    int afterCount = 0;
+    int node = nodeCount++;
+    int offset = sliceCount;
+    for (int k = 0; k < size; k++) {
+      int i = intervals[k];
+      if (ends[i] < center) {
+        before[beforeCount++] = i;
+      } else if (starts[i] > center) {
+        after[afterCount++] = i;
+      } else {
+        byStart[sliceCount++] = i;
+      }
+    }
+    int count = sliceCount - offset;
+    sortByEndDescending(offset, count);
+
+    centers[node] = center;
+    offsets[node] = offset;
+    counts[node] = count;
+    left[node] = build(before, beforeCount);
+    right[node] = build(after, afterCount);
+    return node;
+  }
+
+  private void sortByEndDescending(int offset, int count) {
+    long[] keys = new long[count];
+    for (int k = 0; k < count; k++) {
+      int i = byStart[offset + k];
+      keys[k] = ((long) -ends[i] << 32) | i;
+    }
+    Arrays.sort(keys);
+    for (int k = 0; k < count; k++) {
+      byEnd[offset + k] = (int) keys[k];
+    }
+  }
+
+  /**
+   * Collects the indices of all subtitles displayed at the specified time.
+   *
+   * @param elapsed the time to look up
+   * @param result the array to store the indices to. It needs to be large enough to hold all
+   *     overlapping subtitles, the size of the index is always enough
+   * @return the number of indices stored in the result. The indices are sorted in ascending order
+   */
+  int findAll(int elapsed, int[] result) {
+    int found = 0;
+    int node = root;
+    while (node != -1) {
+      int offset = offsets[node];
+      int end = offset + counts[node];
+      int center = centers[node];
+      if (elapsed < center) {
+        for (int k = offset; k < end && starts[byStart[k]] <= elapsed; k++) {
+          result[found++] = byStart[k];
+        }
+        node = left[node];
+      } else if (elapsed > center) {
+        for (int k = offset; k < end && ends[byEnd[k]] >= elapsed; k++) {
+          result[found++] = byEnd[k];
+        }
+        node = right[node];
+      } else {
+        for (int k = offset; k < end; k++) {
+          result[found++] = byStart[k];
+        }
+        node = -1;
+      }
+    }
+    // report subtitles in the order they appear in the file
+    Arrays.sort(result, 0, found);
+    return found;
+  }
+
+  /** Returns the start time of the first subtitle that starts after the specified time or -1 */
+  int nextStart(int elapsed) {
+    int position = firstStartAfter(elapsed);
+    return position < sortedStarts.length ? sortedStarts[position] : -1;
+  }
+
+  /** Returns the subtitle index at the specified position of the subtitles sorted by start time */
+  int indexByStart(int position) {
+    return startOrder[position];
+  }
+
+  /**
+   * Returns the position of the first subtitle that starts after the specified time, in the
+   * subtitles sorted by start time, or the number of subtitles if there is none
+   */
+  int firstStartAfter(int elapsed) {
+    int low = 0;
+    int high = sortedStarts.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (sortedStarts[mid] <= elapsed) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+}
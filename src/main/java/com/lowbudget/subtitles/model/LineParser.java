@@ -0,0 +1,204 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.model;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Base class of the streaming parsers of text formats.
+ *
+ * <p>The input is read in blocks and parsed one character at a time. Lines are copied into a
+ * reusable buffer, timestamps can be computed directly from their digits and the text is added
+ * directly to a {@link SubtitleStore.Builder}, so no objects are created per subtitle.
+ */
+abstract class LineParser implements SubtitleFormat.Parser {
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private final Reader reader;
+
+  private final char[] buffer = new char[BUFFER_SIZE];
+  private int position;
+  private int limit;
+
+  /** set when the last line ended with a '\r' so a following '\n' is not counted as another line */
+  private boolean skipLineFeed;
+
+  /*package*/ char[] line = new char[256];
+  /*package*/ int lineLength;
+  /*package*/ int lineNumber;
+
+  /*package*/ char[] text = new char[256];
+  /*package*/ int textLength;
+
+  LineParser(Reader reader) {
+    this.reader = reader;
+  }
+
+  /*package*/ boolean isBlank() {
+    return skipWhitespace(0) == lineLength;
+  }
+
+  /*package*/ boolean startsWith(String prefix) {
+    if (lineLength < prefix.length()) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length(); i++) {
+      if (line[i] != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Returns the index of the first occurrence of the string in the current line or -1 */
+  /*package*/ int indexOf(String s) {
+    for (int i = 0; i + s.length() <= lineLength; i++) {
+      int k = 0;
+      while (k < s.length() && line[i + k] == s.charAt(k)) {
+        k++;
+      }
+      if (k == s.length()) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /*package*/ int twoDigits(int i) {
+    if (i + 2 > lineLength || !isDigit(line[i]) || !isDigit(line[i + 1])) {
+      throw invalidTime();
+    }
+    return (line[i] - '0') * 10 + (line[i + 1] - '0');
+  }
+
+  /*package*/ boolean expect(int i, char c) {
+    return i < lineLength && line[i] == c;
+  }
+
+  /*package*/ SubtitleFormatException invalidTime() {
+    return new SubtitleFormatException(lineNumber, "Invalid time line: " + currentLine());
+  }
+
+  /*package*/ int skipWhitespace(int from) {
+    int i = from;
+    while (i < lineLength && line[i] <= ' ') {
+      i++;
+    }
+    return i;
+  }
+
+  /*package*/ static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  /*package*/ String currentLine() {
+    return new String(line, 0, lineLength);
+  }
+
+  /** Makes sure the text buffer can hold the specified number of characters */
+  /*package*/ void ensureTextCapacity(int required) {
+    if (required > text.length) {
+      char[] newText = new char[Math.max(required, text.length * 2)];
+      System.arraycopy(text, 0, newText, 0, textLength);
+      text = newText;
+    }
+  }
+
+  /** Appends the current line to the text followed by a space and a new line */
+  /*package*/ void appendTextLine() {
+    ensureTextCapacity(textLength + lineLength + 2);
+    System.arraycopy(line, 0, text, textLength, lineLength);
+    textLength += lineLength;
+    text[textLength++] = ' ';
+    text[textLength++] = '\n';
+  }
+
+  /** Adds the text without leading or trailing whitespace, as {@link String#trim()} does */
+  /*package*/ void addTrimmedText(SubtitleStore.Builder builder, int id, int start, int end) {
+    int from = 0;
+    int to = textLength;
+    while (from < to && text[from] <= ' ') {
+      from++;
+    }
+    while (to > from && text[to - 1] <= ' ') {
+      to--;
+    }
+    builder.add(id, start, end, text, from, to - from);
+  }
+
+  /**
+   * Reads the next line into the line buffer without its terminator. Lines can be terminated with
+   * any of the terminators recognised by {@link java.util.Scanner#nextLine()}.
+   *
+   * @return {@code false} if there are no more lines
+   */
+  /*package*/ boolean readLine() throws IOException {
+    lineLength = 0;
+    boolean read = false;
+    while (true) {
+      if (position == limit && !fill()) {
+        if (read) {
+          lineNumber++;
+        }
+        return read;
+      }
+      char c = buffer[position++];
+      if (skipLineFeed) {
+        skipLineFeed = false;
+        if (c == '\n') {
+          continue;
+        }
+      }
+      read = true;
+      if (c == '\n' || c == '\u2028' || c == '\u2029' || c == '\u0085') {
+        lineNumber++;
+        return true;
+      }
+      if (c == '\r') {
+        skipLineFeed = true;
+        lineNumber++;
+        return true;
+      }
+      if (lineLength == line.length) {
+        char[] newLine = new char[line.length * 2];
+        System.arraycopy(line, 0, newLine, 0, lineLength);
+        line = newLine;
+      }
+      line[lineLength++] = c;
+    }
+  }
+
+  private boolean fill() throws IOException {
+    int count = reader.read(buffer, 0, buffer.length);
+    if (count <= 0) {
+      return false;
+    }
+    position = 0;
+    limit = count;
+    return true;
+  }
+}
@@ -24,31 +24,99 @@
 
 package com.lowbudget.subtitles.model;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
+/**
+ * A list of listeners that can be notified from any thread.
+ *
+ * <p>The listeners are kept in an array that is replaced on every change, so firing an event reads
+ * a snapshot of the array without locking and is not affected by listeners added or removed while
+ * it runs.
+ *
+ * <p>The typed {@code fireEvent} methods pass the arguments of the event to the listeners, so they
+ * can be called with a method reference (i.e. {@code Listener::onStarted}) that does not capture
+ * anything and therefore does not allocate on every event.
+ */
 public class Listeners<T> {
 
-    private final List<T> list = new ArrayList<>();
+    private static final Object[] EMPTY = new Object[0];
+
+    private volatile Object[] listeners = EMPTY;
+
+    /** An event with a long and a boolean argument, which are not boxed */
+    public interface LongBooleanEvent<T> {
+        void fire(T listener, long value, boolean flag);
+    }
 
-    public void add(T listener) {
-        this.list.add(listener);
+    public synchronized void add(T listener) {
+        Object[] current = listeners;
+        Object[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = listener;
+        this.listeners = updated;
     }
 
-    public void remove(T listener) {
-        list.remove(listener);
+    public synchronized void remove(T listener) {
+        Object[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].equals(listener)) {
+                Object[] updated = new Object[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                this.listeners = updated;
+                return;
+            }
+        }
     }
 
-    public void clear() {
-        this.list.clear();
+    public synchronized void clear() {
+        this.listeners = EMPTY;
+    }
+
+    public int size() {
+        return listeners.length;
     }
 
     public void fireEvent(Consumer<T> action) {
-        // iterate the list from the end so listeners can remove themselves during this loop
-        for (int i = list.size() - 1; i >= 0; i--) {
-            T listener = list.get(i);
-            action.accept(listener);
+        // listeners are notified in the reverse order they were added
+        Object[] snapshot = listeners;
+        for (int i = snapshot.length - 1; i >= 0; i--) {
+            action.accept(listener(snapshot, i));
+        }
+    }
+
+    public <A> void fireEvent(BiConsumer<T, A> event, A argument) {
+        Object[] snapshot = listeners;
+        for (int i = snapshot.length - 1; i >= 0; i--) {
+            event.accept(listener(snapshot, i), argument);
+        }
+    }
+
+    /**
+     * Fires the event like {@link #fireEvent(BiConsumer, Object)} and passes the time each listener
+     * took to handle it in nanoseconds to the specified consumer.
+     */
+    public <A> void fireEvent(BiConsumer<T, A> event, A argument, LongConsumer dispatchTimes) {
+        Object[] snapshot = listeners;
+        for (int i = snapshot.length - 1; i >= 0; i--) {
+            long begin = System.nanoTime();
+            event.accept(listener(snapshot, i), argument);
+            dispatchTimes.accept(System.nanoTime() - begin);
         }
     }
+
+    public void fireEvent(LongBooleanEvent<T> event, long value, boolean flag) {
+        Object[] snapshot = listeners;
+        for (int i = snapshot.length - 1; i >= 0; i--) {
+            event.fire(listener(snapshot, i), value, flag);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T listener(Object[] snapshot, int index) {
+        // only listeners of type T are added
+        return (T) snapshot[index];
+    }
 }
@@ -0,0 +1,284 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.model;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Indexes the subtitles of an SRT file that is mapped in memory.
+ *
+ * <p>Only the id, the start and end times and the location of the text of each subtitle are kept.
+ * The bytes are scanned directly since all the characters that matter (digits, separators and line
+ * terminators) are single bytes in the supported encodings. The text is decoded later by {@link
+ * MappedText} when a subtitle is actually needed.
+ */
+final class MappedSrtIndexer {
+
+  private final ByteBuffer buffer;
+  private final int limit;
+  private int position;
+
+  /** bounds of the current line, without its terminator */
+  private int lineStart;
+  private int lineEnd;
+  private int lineNumber;
+
+  /** the position after the timestamp parsed by the last call to {@link #parseTime(int)} */
+  private int timeEnd;
+
+  private int count;
+  private int[] ids = new int[1024];
+  private int[] starts = new int[1024];
+  private int[] ends = new int[1024];
+  private int[] textOffsets = new int[1024];
+  private int[] textLengths = new int[1024];
+
+  /** Indexes the bytes of the buffer in [from, to) */
+  MappedSrtIndexer(ByteBuffer buffer, int from, int to) {
+    this.buffer = buffer;
+    this.position = from;
+    this.limit = to;
+  }
+
+  /**
+   * Indexes all subtitles in the range. The listener is notified of the progress within the range
+   * and checked for cancellation periodically.
+   */
+  MappedSrtIndexer indexAll(SubtitleLoader.Listener listener) {
+    int from = position;
+    int length = limit - from;
+    while (next()) {
+      if (count % SubtitleLoader.PROGRESS_INTERVAL == 0) {
+        if (listener.isCancelled()) {
+          throw new CancellationException("Loading cancelled");
+        }
+        listener.onProgress((int) ((long) (position - from) * 100 / length));
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Creates a store with the subtitles of all indexers in order. The indexers must have indexed
+   * ranges of the same buffer.
+   */
+  static SubtitleStore toStore(List<MappedSrtIndexer> indexers, Charset charset) {
+    int total = 0;
+    for (MappedSrtIndexer indexer : indexers) {
+      total += indexer.count;
+    }
+    int[] ids = new int[total];
+    int[] starts = new int[total];
+    int[] ends = new int[total];
+    int[] textOffsets = new int[total];
+    int[] textLengths = new int[total];
+
+    // text offsets are positions in the whole buffer, so the columns can be just concatenated
+    int offset = 0;
+    for (MappedSrtIndexer indexer : indexers) {
+      int count = indexer.count;
+      System.arraycopy(indexer.ids, 0, ids, offset, count);
+      System.arraycopy(indexer.starts, 0, starts, offset, count);
+      System.arraycopy(indexer.ends, 0, ends, offset, count);
+      System.arraycopy(indexer.textOffsets, 0, textOffsets, offset, count);
+      System.arraycopy(indexer.textLengths, 0, textLengths, offset, count);
+      offset += count;
+    }
+    ByteBuffer buffer = indexers.isEmpty() ? ByteBuffer.allocate(0) : indexers.get(0).buffer;
+    return new SubtitleStore(
+        ids, starts, ends, textOffsets, textLengths, new MappedText(buffer, charset));
+  }
+
+  private boolean next() {
+    // skip any blank lines before the subtitle id
+    do {
+      if (!readLine()) {
+        return false;
+      }
+    } while (isBlank());
+
+    ensureCapacity();
+    ids[count] = parseId();
+
+    if (!readLine()) {
+      throw new SubtitleFormatException(lineNumber, "Missing time line for subtitle " + ids[count]);
+    }
+    parseTimeLine();
+
+    // the text spans all lines up to the next empty line or the end of input
+    int textStart = position;
+    int textEnd = textStart;
+    while (readLine() && lineEnd > lineStart) {
+      textEnd = lineEnd;
+    }
+    textOffsets[count] = textStart;
+    textLengths[count] = textEnd - textStart;
+    count++;
+    return true;
+  }
+
+  private void ensureCapacity() {
+    if (count == ids.length) {
+      int newLength = ids.length * 2;
+      ids = Arrays.copyOf(ids, newLength);
+      starts = Arrays.copyOf(starts, newLength);
+      ends = Arrays.copyOf(ends, newLength);
+      textOffsets = Arrays.copyOf(textOffsets, newLength);
+      textLengths = Arrays.copyOf(textLengths, newLength);
+    }
+  }
+
+  private boolean isBlank() {
+    return skipWhitespace(lineStart) == lineEnd;
+  }
+
+  private int parseId() {
+    int i = skipWhitespace(lineStart);
+    int id = 0;
+    int digits = 0;
+    while (i < lineEnd && isDigit(byteAt(i))) {
+      id = id * 10 + (byteAt(i++) - '0');
+      digits++;
+    }
+    if (digits == 0 || skipWhitespace(i) != lineEnd) {
+      throw new SubtitleFormatException(lineNumber, "Invalid subtitle id");
+    }
+    return id;
+  }
+
+  private void parseTimeLine() {
+    int i = skipWhitespace(lineStart);
+    starts[count] = parseTime(i);
+    i = skipWhitespace(timeEnd);
+    if (i + 3 > lineEnd || byteAt(i) != '-' || byteAt(i + 1) != '-' || byteAt(i + 2) != '>') {
+      throw invalidTime();
+    }
+    i = skipWhitespace(i + 3);
+    ends[count] = parseTime(i);
+  }
+
+  /** Parses a timestamp in the HH:MM:SS,mmm format and returns it in milliseconds */
+  private int parseTime(int from) {
+    int i = from;
+    int hours = 0;
+    int digits = 0;
+    while (i < lineEnd && isDigit(byteAt(i))) {
+      hours = hours * 10 + (byteAt(i++) - '0');
+      digits++;
+    }
+    if (digits == 0 || !expect(i, ':')) {
+      throw invalidTime();
+    }
+    int minutes = twoDigits(i + 1);
+    if (!expect(i + 3, ':')) {
+      throw invalidTime();
+    }
+    int seconds = twoDigits(i + 4);
+    i += 6;
+    // some files use a dot instead of a comma
+    if (!expect(i, ',') && !expect(i, '.')) {
+      throw invalidTime();
+    }
+    i++;
+    int millis = 0;
+    int scale = 100;
+    while (i < lineEnd && isDigit(byteAt(i)) && scale > 0) {
+      millis += (byteAt(i++) - '0') * scale;
+      scale /= 10;
+    }
+    if (scale == 100 || minutes > 59 || seconds > 59) {
+      throw invalidTime();
+    }
+    this.timeEnd = i;
+    return ((hours * 60 + minutes) * 60 + seconds) * 1000 + millis;
+  }
+
+  private int twoDigits(int i) {
+    if (i + 2 > lineEnd || !isDigit(byteAt(i)) || !isDigit(byteAt(i + 1))) {
+      throw invalidTime();
+    }
+    return (byteAt(i) - '0') * 10 + (byteAt(i + 1) - '0');
+  }
+
+  private boolean expect(int i, char c) {
+    return i < lineEnd && byteAt(i) == c;
+  }
+
+  private SubtitleFormatException invalidTime() {
+    return new SubtitleFormatException(lineNumber, "Invalid time line");
+  }
+
+  private int skipWhitespace(int from) {
+    int i = from;
+    while (i < lineEnd && (byteAt(i) & 0xff) <= ' ') {
+      i++;
+    }
+    return i;
+  }
+
+  private static boolean isDigit(byte b) {
+    return b >= '0' && b <= '9';
+  }
+
+  private byte byteAt(int i) {
+    return buffer.get(i);
+  }
+
+  /**
+   * Finds the bounds of the next line.
+   *
+   * @return {@code false} if there are no more lines
+   */
+  private boolean readLine() {
+    if (position >= limit) {
+      return false;
+    }
+    lineStart = position;
+    while (position < limit) {
+      byte b = buffer.get(position);
+      if (b == '\n') {
+        lineEnd = position++;
+        lineNumber++;
+        return true;
+      }
+      if (b == '\r') {
+        lineEnd = position++;
+        if (position < limit && buffer.get(position) == '\n') {
+          position++;
+        }
+        lineNumber++;
+        return true;
+      }
+      position++;
+    }
+    lineEnd = position;
+    lineNumber++;
+    return true;
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.model;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * The text of subtitles in a memory mapped file. Only the location of the text of each subtitle is
+ * kept in memory and it is decoded each time it is requested.
+ */
+final class MappedText implements SubtitleStore.Text {
+
+  private final ByteBuffer buffer;
+  private final Charset charset;
+
+  MappedText(ByteBuffer buffer, Charset charset) {
+    this.buffer = buffer;
+    this.charset = charset;
+  }
+
+  @Override
+  public String get(int offset, int length) {
+    // use a duplicate so decoding does not change the position of the shared buffer
+    ByteBuffer bytes = buffer.duplicate();
+    // through Buffer, the ByteBuffer overrides of limit and position only exist since Java 9
+    ((Buffer) bytes).limit(offset + length);
+    ((Buffer) bytes).position(offset);
+    CharSequence raw = charset.decode(bytes);
+
+    // format the text the same way SrtParser does: every line is followed by a space and a new
+    // line and the whole text is trimmed
+    StringBuilder text = new StringBuilder(raw.length() + 8);
+    for (int i = 0; i < raw.length(); i++) {
+      char c = raw.charAt(i);
+      if (c == '\r' || c == '\n') {
+        text.append(" \n");
+        if (c == '\r' && i + 1 < raw.length() && raw.charAt(i + 1) == '\n') {
+          i++;
+        }
+      } else {
+        text.append(c);
+      }
+    }
+    return text.toString().trim();
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.model;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Indexes a memory mapped SRT file using multiple threads.
+ *
+ * <p>The file is split in chunks at empty lines. An empty line always ends a subtitle, so each
+ * chunk starts with a complete subtitle and can be indexed on its own by a {@link
+ * MappedSrtIndexer}. The results are concatenated in file order, keeping the ids and the order of
+ * the subtitles the same as indexing the whole file at once.
+ */
+final class ParallelSrtIndexer {
+
+  /** chunks smaller than this are not worth the overhead of a separate task */
+  private static final int MIN_CHUNK_SIZE = 1024 * 1024;
+
+  /** split the file in more chunks than threads so threads that finish early can help the others */
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  private ParallelSrtIndexer() {
+    // not allow instantiation
+  }
+
+  static SubtitleStore index(
+      ByteBuffer buffer, Charset charset, ForkJoinPool pool, SubtitleLoader.Listener listener) {
+    int limit = buffer.limit();
+    int chunkCount =
+        Math.max(1, Math.min(pool.getParallelism() * CHUNKS_PER_THREAD, limit / MIN_CHUNK_SIZE));
+    int chunkSize = limit / chunkCount;
+
+    List<MappedSrtIndexer> indexers = new ArrayList<>();
+    List<ChunkTask> tasks = new ArrayList<>();
+    AtomicLong indexed = new AtomicLong();
+    int from = 0;
+    while (from < limit) {
+      int to = from + chunkSize >= limit ? limit : nextChunkStart(buffer, from + chunkSize, limit);
+      MappedSrtIndexer indexer = new MappedSrtIndexer(buffer, from, to);
+      indexers.add(indexer);
+      tasks.add(new ChunkTask(indexer, to - from, limit, indexed, listener));
+      from = to;
+    }
+
+    pool.invoke(
+        new RecursiveAction() {
+          @Override
+          protected void compute() {
+            ForkJoinTask.invokeAll(tasks);
+          }
+        });
+    return MappedSrtIndexer.toStore(indexers, charset);
+  }
+
+  /**
+   * Returns the position after the first empty line found at or after the specified position, or
+   * the limit if there is none.
+   */
+  static int nextChunkStart(ByteBuffer buffer, int position, int limit) {
+    // move to the start of the next line
+    int i = skipLine(buffer, position, limit);
+    while (i < limit) {
+      int next = skipLine(buffer, i, limit);
+      byte b = buffer.get(i);
+      if (b == '\n' || b == '\r') {
+        // the line starting at i is empty
+        return next;
+      }
+      i = next;
+    }
+    return limit;
+  }
+
+  /** Returns the position after the terminator of the line containing the specified position */
+  private static int skipLine(ByteBuffer buffer, int position, int limit) {
+    int i = position;
+    while (i < limit) {
+      byte b = buffer.get(i++);
+      if (b == '\n') {
+        return i;
+      }
+      if (b == '\r') {
+        return i < limit && buffer.get(i) == '\n' ? i + 1 : i;
+      }
+    }
+    return limit;
+  }
+
+  private static class ChunkTask extends RecursiveAction {
+
+    private final MappedSrtIndexer indexer;
+    private final int size;
+    private final int total;
+    private final AtomicLong indexed;
+    private final SubtitleLoader.Listener listener;
+
+    ChunkTask(
+        MappedSrtIndexer indexer,
+        int size,
+        int total,
+        AtomicLong indexed,
+        SubtitleLoader.Listener listener) {
+      this.indexer = indexer;
+      this.size = size;
+      this.total = total;
+      this.indexed = indexed;
+      this.listener = listener;
+    }
+
+    @Override
+    protected void compute() {
+      // the progress within a chunk is meaningless for the whole file, only cancellation matters
+      indexer.indexAll(
+          new SubtitleLoader.Adapter() {
+            @Override
+            public boolean isCancelled() {
+              return listener.isCancelled();
+            }
+          });
+      listener.onProgress((int) (indexed.addAndGet(size) * 100 / total));
+    }
+  }
+}
@@ -24,25 +24,79 @@
 
 package com.lowbudget.subtitles.model;
 
-import java.util.function.Consumer;
+import com.lowbudget.subtitles.metrics.FlightEvents;
+import com.lowbudget.subtitles.metrics.PlaybackMetrics;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.LongConsumer;
 import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class Player {
 
+  /** the interval between position events while playing */
+  public static final int DEFAULT_POSITION_INTERVAL = 250;
+
   private final Listeners<Listener> listeners = new Listeners<>();
 
+  private final Listeners<CueListener> cueListeners = new Listeners<>();
+
+  private final Listeners<PositionListener> positionListeners = new Listeners<>();
+
+  private final Listeners<PreviewListener> previewListeners = new Listeners<>();
+
   private final Clock clock;
 
   private SubtitleList subtitles;
 
   @Getter private Subtitle subtitle;
 
+  /** all subtitles displayed at the current duration, subtitles in the file can overlap */
+  @Getter private List<Subtitle> activeSubtitles = Collections.emptyList();
+
   @Getter private boolean seekOperation;
 
+  /** the subtitles at the position being previewed or {@code null} if there is no preview */
+  @Getter private List<Subtitle> previewSubtitles;
+
   @Getter private Settings settings;
 
+  /** saves the settings when they change or {@code null} if they are not saved */
+  @Getter @Setter private SettingsStore settingsStore;
+
+  /** the minimum change of the elapsed duration between two position events while playing */
+  @Getter @Setter private int positionInterval = DEFAULT_POSITION_INTERVAL;
+
+  /** the active version of the subtitle list when the cue listeners were last notified */
+  private int activeVersion = -1;
+
+  /** the elapsed duration when the position listeners were last notified */
+  private int lastPosition = -1;
+
+  /** the elapsed duration at which the displayed subtitles were expected to change next */
+  private int nextChange = Integer.MAX_VALUE;
+
+  /**
+   * the {@link System#nanoTime()} at which the displayed subtitles should have changed the last
+   * time they did, which is a bit before they were found to have changed on a tick
+   */
+  @Getter private long cueChangeNanos;
+
+  private final PlaybackMetrics metrics = PlaybackMetrics.getDefault();
+
+  private final FlightEvents flightEvents = FlightEvents.getDefault();
+
+  /** created once so timing the listeners does not allocate on every event */
+  private final LongConsumer dispatchTimes = metrics::recordListenerDispatch;
+
+  /** the progress of loading a subtitles file as a percentage or -1 if no file is being loaded */
+  @Getter private int loadProgress = -1;
+
   public Player(Clock clock, Settings settings) {
     this.clock = clock;
     this.settings = settings;
@@ -50,14 +104,16 @@ public class Player {
   }
 
   private void onClockTick(boolean isLastTick) {
-    updateCurrentSubtitle();
+    updateCurrentSubtitle(isLastTick);
     if (isLastTick) {
-      fireEvent(l -> l.onStopped(this));
+      fireEvent(Listener::onStopped);
     }
   }
 
   public void seek(int duration) {
     log.debug("Seeking to duration: {}", duration);
+    FlightEvents.Seek event = flightEvents.beginSeek();
+    int from = clock.getElapsedDuration();
 
     // we do not need to check the clock state if the clock is running.
     // if the seek operation is at the end, the clock will detect this and stop on next tick
@@ -65,36 +121,131 @@ public class Player {
 
     // update this flag before firing the tick event and reset afterwards
     this.seekOperation = true;
-    updateCurrentSubtitle();
+    updateCurrentSubtitle(true);
     this.seekOperation = false;
+    endPreview();
+
+    if (event != null) {
+      event.end(from, duration);
+    }
+  }
+
+  /**
+   * Shows the subtitles at a position without moving there, i.e. while the user drags the slider.
+   * The preview listeners are notified and the preview lasts until the next seek.
+   */
+  public void preview(int duration) {
+    if (subtitles == null) {
+      return;
+    }
+    this.previewSubtitles = subtitles.findSubtitlesAt(duration);
+    previewListeners.fireEvent(PreviewListener::onPreviewChanged, this, dispatchTimes);
+  }
+
+  public boolean isPreviewing() {
+    return previewSubtitles != null;
+  }
+
+  private void endPreview() {
+    if (previewSubtitles != null) {
+      this.previewSubtitles = null;
+      previewListeners.fireEvent(PreviewListener::onPreviewChanged, this, dispatchTimes);
+    }
   }
 
   public void setSettings(Settings newSettings) {
     this.settings = newSettings;
-    fireEvent(l -> l.onSettingsChanged(this));
+    saveSettings();
+    fireEvent(Listener::onSettingsChanged);
+  }
+
+  private void saveSettings() {
+    if (settingsStore != null) {
+      settingsStore.saveLater(settings);
+    }
   }
 
   public boolean isPlaying() {
     return clock.isRunning();
   }
 
-  private void updateCurrentSubtitle() {
-    this.subtitle = subtitles.findSubtitle(clock.getElapsedDuration());
-    fireEvent(l -> l.onClockTick(this));
+  /**
+   * Finds the subtitles displayed at the current position and notifies the cue listeners if they
+   * changed, and the position listeners if the position changed enough since they were last
+   * notified.
+   *
+   * @param forcePosition notify the position listeners regardless of the position interval
+   */
+  private void updateCurrentSubtitle(boolean forcePosition) {
+    int elapsed = clock.getElapsedDuration();
+    long begin = System.nanoTime();
+    this.activeSubtitles = subtitles.findActiveSubtitles(elapsed);
+    long now = System.nanoTime();
+    metrics.recordLookup(now - begin);
+    this.subtitle = activeSubtitles.isEmpty() ? null : activeSubtitles.get(0);
+
+    if (subtitles.getActiveVersion() != activeVersion) {
+      activeVersion = subtitles.getActiveVersion();
+      // a tick usually comes a bit after the change it finds, a seek changes them immediately
+      long lateNanos = 0;
+      if (!seekOperation && nextChange <= elapsed) {
+        lateNanos = clock.getElapsedNanos() - TimeUnit.MILLISECONDS.toNanos(nextChange);
+      }
+      this.cueChangeNanos = now - Math.max(0, lateNanos);
+
+      FlightEvents.CueTransition event = flightEvents.beginCueTransition();
+      cueListeners.fireEvent(CueListener::onActiveSubtitlesChanged, this, dispatchTimes);
+      if (event != null) {
+        int firstId = subtitle == null ? -1 : subtitle.getId();
+        event.end(elapsed, activeSubtitles.size(), firstId, Math.max(0, lateNanos));
+      }
+    }
+    this.nextChange = subtitles.findNextChange(elapsed);
+
+    if (forcePosition || Math.abs(elapsed - lastPosition) >= positionInterval) {
+      lastPosition = elapsed;
+      positionListeners.fireEvent(PositionListener::onPositionChanged, this, dispatchTimes);
+    }
+  }
+
+  /**
+   * Iterates over the next subtitles that will be displayed after the current position, in the
+   * order they start. The iterator can be used by any thread.
+   *
+   * @param count the maximum number of subtitles returned
+   */
+  public Iterator<Subtitle> getUpcomingSubtitles(int count) {
+    if (subtitles == null) {
+      return Collections.emptyIterator();
+    }
+    return subtitles.findUpcomingSubtitles(clock.getElapsedDuration(), count);
   }
 
   public void addListener(Listener listener) {
     this.listeners.add(listener);
   }
 
+  public void addCueListener(CueListener listener) {
+    this.cueListeners.add(listener);
+  }
+
+  public void addPositionListener(PositionListener listener) {
+    this.positionListeners.add(listener);
+  }
+
+  public void addPreviewListener(PreviewListener listener) {
+    this.previewListeners.add(listener);
+  }
+
   public void start() {
     clock.start();
-    fireEvent(l -> l.onStarted(this));
+    fireEvent(Listener::onStarted);
   }
 
   public void stop() {
     clock.stop();
-    fireEvent(l -> l.onStopped(this));
+    fireEvent(Listener::onStopped);
+    positionListeners.fireEvent(PositionListener::onPositionChanged, this, dispatchTimes);
   }
 
   public void loadSubtitles(SubtitleList subtitles) {
@@ -102,14 +253,52 @@ public class Player {
     this.subtitles = subtitles;
     clock.stop();
     clock.init(subtitles.getTotalDuration());
-    fireEvent(l -> l.onSubtitlesLoaded(this));
+    clock.setNextChange(subtitles::findNextChange);
+    fireEvent(Listener::onSubtitlesLoaded);
+    updateSubtitles();
+    endPreview();
+  }
+
+  /**
+   * Replaces the subtitles with a list that contains more subtitles of the same file, without
+   * changing the current position. This is used when the file is loaded progressively.
+   */
+  public void extendSubtitles(SubtitleList subtitles) {
+    log.debug("Extending list of subtitles (Total: {})", subtitles.size());
+    this.subtitles = subtitles;
+    clock.setTotalDuration(subtitles.getTotalDuration());
+    clock.setNextChange(subtitles::findNextChange);
+    fireEvent(Listener::onSubtitlesLoaded);
+    updateSubtitles();
+  }
+
+  /** Notifies all cue and position listeners after the subtitle list is replaced */
+  private void updateSubtitles() {
+    // the version and the next change belong to the previous list
+    this.activeVersion = -1;
+    this.nextChange = Integer.MAX_VALUE;
+    updateCurrentSubtitle(true);
+  }
+
+  public boolean isLoading() {
+    return this.loadProgress >= 0;
+  }
+
+  public void setLoadProgress(int progress) {
+    this.loadProgress = progress;
+    fireEvent(Listener::onLoadProgress);
   }
 
   public void close() {
     log.info("Closing player");
     listeners.clear();
+    cueListeners.clear();
+    positionListeners.clear();
+    previewListeners.clear();
     clock.stop();
-    Settings.saveToFile(settings);
+    if (settingsStore != null) {
+      settingsStore.close(settings);
+    }
   }
 
   public boolean hasSubtitles() {
@@ -130,23 +319,42 @@ public class Player {
 
   public void setLastFolder(String path) {
     settings.setLastOpenFolder(path);
+    saveSettings();
   }
 
-  private void fireEvent(Consumer<Listener> action) {
-    this.listeners.fireEvent(action);
+  private void fireEvent(BiConsumer<Listener, Player> event) {
+    this.listeners.fireEvent(event, this, dispatchTimes);
   }
 
   public interface Listener {
 
     void onSubtitlesLoaded(Player player);
 
-    void onClockTick(Player player);
-
     void onStarted(Player player);
 
     void onStopped(Player player);
 
     void onSettingsChanged(Player player);
+
+    void onLoadProgress(Player player);
+  }
+
+  /** Notified when the displayed subtitles change */
+  public interface CueListener {
+    void onActiveSubtitlesChanged(Player player);
+  }
+
+  /**
+   * Notified when the position changes. While playing this happens at most once every {@link
+   * #getPositionInterval() position interval}, a seek or stop always notifies the listener.
+   */
+  public interface PositionListener {
+    void onPositionChanged(Player player);
+  }
+
+  /** Notified when a preview starts, moves to another position or ends */
+  public interface PreviewListener {
+    void onPreviewChanged(Player player);
   }
 
   public static class Adapter implements Listener {
@@ -157,22 +365,22 @@ public class Player {
     }
 
     @Override
-    public void onClockTick(Player player) {
+    public void onStarted(Player player) {
       // to be implemented by descendants if needed
     }
 
     @Override
-    public void onStarted(Player player) {
+    public void onStopped(Player player) {
       // to be implemented by descendants if needed
     }
 
     @Override
-    public void onStopped(Player player) {
+    public void onSettingsChanged(Player player) {
       // to be implemented by descendants if needed
     }
 
     @Override
-    public void onSettingsChanged(Player player) {
+    public void onLoadProgress(Player player) {
       // to be implemented by descendants if needed
     }
   }
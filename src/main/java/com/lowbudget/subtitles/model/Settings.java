@@ -25,30 +25,17 @@
 package com.lowbudget.subtitles.model;
 
 import java.awt.*;
-import java.io.File;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.io.Serializable;
-import java.nio.file.Files;
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.Marshaller;
-import javax.xml.bind.Unmarshaller;
-import javax.xml.bind.annotation.XmlAccessType;
-import javax.xml.bind.annotation.XmlAccessorType;
-import javax.xml.bind.annotation.XmlRootElement;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
-import lombok.extern.slf4j.Slf4j;
 
+/** The user's settings, which are saved by a {@link SettingsStore} */
 @Getter
 @Setter
-@Slf4j
 @AllArgsConstructor
 @NoArgsConstructor
-@XmlRootElement(name = "player")
-@XmlAccessorType(XmlAccessType.FIELD)
 public class Settings implements Serializable {
 
   // TODO: add setting to display duration left instead of elapsed
@@ -65,36 +52,8 @@ public class Settings implements Serializable {
     return new Settings("Arial", Font.PLAIN, 24, 0, ".");
   }
 
-  public static Settings loadFromFileOrDefault() {
-    File configFile = new File(".", "config.xml");
-
-    try (InputStream in = Files.newInputStream(configFile.toPath())) {
-      JAXBContext jaxbContext = JAXBContext.newInstance(Settings.class);
-      Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
-      Settings settings = (Settings) jaxbUnmarshaller.unmarshal(in);
-      log.info("Loaded settings from config file: {}", configFile.getAbsolutePath());
-      return settings;
-    } catch (Exception e) {
-      log.info(
-          "Could not read settings from config file: {}. Returning default settings",
-          configFile.getAbsolutePath());
-    }
-    return defaultSettings();
-  }
-
-  public static void saveToFile(Settings settings) {
-    File configFile = new File(".", "config.xml");
-
-    try (OutputStream out = Files.newOutputStream(configFile.toPath())) {
-      JAXBContext jaxbContext = JAXBContext.newInstance(Settings.class);
-      Marshaller jaxbMarshaller = jaxbContext.createMarshaller();
-      jaxbMarshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-      jaxbMarshaller.marshal(settings, out);
-
-      log.info("Saved settings to config file: {}", configFile.getAbsolutePath());
-    } catch (Exception e) {
-      // this is called on application shutdown, so we can only log the exception
-      log.info("Could not save settings to config file: {}", configFile.getAbsolutePath(), e);
-    }
+  /** Returns a copy that does not change when these settings change */
+  public Settings copy() {
+    return new Settings(fontName, fontStyle, fontSize, opacity, lastOpenFolder);
   }
 }
@@ -0,0 +1,269 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reads and writes the {@link Settings} as an XML file.
+ *
+ * <p>The file is written to a temporary file next to it which then replaces it, so a crash while
+ * saving leaves either the old or the new settings in place. {@link #saveLater(Settings)} waits
+ * for the changes to stop for {@link #SAVE_DELAY} milliseconds and saves in a background thread.
+ * It never waits for a save in progress, so it can be called from the event dispatch thread.
+ */
+@Slf4j
+public class SettingsStore {
+
+  /** the time to wait after the last change before the settings are saved, in milliseconds */
+  public static final int SAVE_DELAY = 500;
+
+  private static final String ROOT = "player";
+  private static final String FONT_NAME = "fontName";
+  private static final String FONT_STYLE = "fontStyle";
+  private static final String FONT_SIZE = "fontSize";
+  private static final String OPACITY = "opacity";
+  private static final String LAST_OPEN_FOLDER = "lastOpenFolder";
+
+  @Getter private final Path file;
+
+  private final ScheduledExecutorService executor =
+      Executors.newSingleThreadScheduledExecutor(
+          r -> {
+            Thread thread = new Thread(r, "settings-saver");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  /** the settings waiting to be saved or {@code null} if they are all saved, guarded by this */
+  private Settings pending;
+
+  /**
+   * held while the settings are written, so the latest ones are written last. It is taken before
+   * this, which is only held to swap the pending settings
+   */
+  private final Object writeLock = new Object();
+
+  /** the save scheduled by the last change, guarded by this */
+  private ScheduledFuture<?> scheduledSave;
+
+  public SettingsStore(Path file) {
+    this.file = file.toAbsolutePath();
+  }
+
+  /** Returns the store of the {@code config.xml} file in the working directory */
+  public static SettingsStore newDefault() {
+    return new SettingsStore(Paths.get(".", "config.xml"));
+  }
+
+  /** Reads the settings from the file or returns the default settings if it cannot be read */
+  public Settings loadOrDefault() {
+    try (InputStream in = Files.newInputStream(file)) {
+      Settings settings = read(in);
+      log.info("Loaded settings from config file: {}", file);
+      return settings;
+    } catch (NoSuchFileException e) {
+      log.info("Config file {} does not exist. Returning default settings", file);
+    } catch (Exception e) {
+      log.info("Could not read settings from config file: {}. Returning default settings", file, e);
+    }
+    return Settings.defaultSettings();
+  }
+
+  /**
+   * Saves a copy of the settings in the background once they have not changed for {@link
+   * #SAVE_DELAY} milliseconds.
+   */
+  public void saveLater(Settings settings) {
+    synchronized (this) {
+      this.pending = settings.copy();
+      if (scheduledSave != null) {
+        scheduledSave.cancel(false);
+      }
+      if (!executor.isShutdown()) {
+        scheduledSave = executor.schedule(this::savePending, SAVE_DELAY, TimeUnit.MILLISECONDS);
+        return;
+      }
+    }
+    // the store is closed, i.e. the application is exiting, so there is no thread to save later
+    savePending();
+  }
+
+  /** Saves the settings immediately, replacing any save that is still waiting */
+  public void save(Settings settings) {
+    synchronized (this) {
+      this.pending = settings.copy();
+    }
+    savePending();
+  }
+
+  /** Saves the settings immediately and stops the background thread */
+  public void close(Settings settings) {
+    synchronized (this) {
+      if (scheduledSave != null) {
+        scheduledSave.cancel(false);
+      }
+      executor.shutdown();
+      this.pending = settings.copy();
+    }
+    savePending();
+  }
+
+  /** writes the latest settings, a save that runs late finds nothing left to write */
+  private void savePending() {
+    synchronized (writeLock) {
+      Settings settings;
+      synchronized (this) {
+        settings = this.pending;
+        this.pending = null;
+      }
+      if (settings == null) {
+        return;
+      }
+      try {
+        writeAtomically(settings);
+        log.info("Saved settings to config file: {}", file);
+      } catch (Exception e) {
+        // this can run in the background or on application shutdown, so we can only log it
+        log.info("Could not save settings to config file: {}", file, e);
+      }
+    }
+  }
+
+  private void writeAtomically(Settings settings) throws IOException, XMLStreamException {
+    Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+    try {
+      try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+        OutputStream out = Channels.newOutputStream(channel);
+        write(settings, out);
+        out.flush();
+        // the data must be on the disk before the rename makes it the config file
+        channel.force(true);
+      }
+      try {
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  private static Settings read(InputStream in) throws XMLStreamException {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+    // values missing from the file keep their defaults
+    Settings settings = Settings.defaultSettings();
+    XMLStreamReader reader = factory.createXMLStreamReader(in);
+    try {
+      reader.nextTag();
+      reader.require(XMLStreamConstants.START_ELEMENT, null, ROOT);
+      while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+        String name = reader.getLocalName();
+        String value = reader.getElementText().trim();
+        switch (name) {
+          case FONT_NAME:
+            settings.setFontName(value);
+            break;
+          case FONT_STYLE:
+            settings.setFontStyle(Integer.parseInt(value));
+            break;
+          case FONT_SIZE:
+            settings.setFontSize(Integer.parseInt(value));
+            break;
+          case OPACITY:
+            settings.setOpacity(Integer.parseInt(value));
+            break;
+          case LAST_OPEN_FOLDER:
+            settings.setLastOpenFolder(value);
+            break;
+          default:
+            log.debug("Ignoring unknown setting: {}", name);
+        }
+      }
+    } finally {
+      reader.close();
+    }
+    return settings;
+  }
+
+  private static void write(Settings settings, OutputStream out) throws XMLStreamException {
+    XMLStreamWriter writer =
+        XMLOutputFactory.newInstance()
+            .createXMLStreamWriter(out, StandardCharsets.UTF_8.name());
+    writer.writeStartDocument(StandardCharsets.UTF_8.name(), "1.0");
+    writer.writeCharacters("\n");
+    writer.writeStartElement(ROOT);
+    writeElement(writer, FONT_NAME, settings.getFontName());
+    writeElement(writer, FONT_STYLE, String.valueOf(settings.getFontStyle()));
+    writeElement(writer, FONT_SIZE, String.valueOf(settings.getFontSize()));
+    writeElement(writer, OPACITY, String.valueOf(settings.getOpacity()));
+    writeElement(writer, LAST_OPEN_FOLDER, settings.getLastOpenFolder());
+    writer.writeCharacters("\n");
+    writer.writeEndElement();
+    writer.writeCharacters("\n");
+    writer.writeEndDocument();
+    writer.close();
+  }
+
+  private static void writeElement(XMLStreamWriter writer, String name, String value)
+      throws XMLStreamException {
+    // null values are left out, as they were when the file was written with JAXB
+    if (value == null) {
+      return;
+    }
+    writer.writeCharacters("\n    ");
+    writer.writeStartElement(name);
+    writer.writeCharacters(value);
+    writer.writeEndElement();
+  }
+}
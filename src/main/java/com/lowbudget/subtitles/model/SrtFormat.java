@@ -0,0 +1,84 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.model;
+
+import java.io.Reader;
+import java.util.Collections;
+import java.util.List;
+
+/** The SubRip format */
+public class SrtFormat implements SubtitleFormat {
+
+  @Override
+  public String getName() {
+    return "SubRip";
+  }
+
+  @Override
+  public List<String> getExtensions() {
+    return Collections.singletonList("srt");
+  }
+
+  /** Accepts text that starts with a numeric id followed by a time line */
+  @Override
+  public boolean accepts(CharSequence sample) {
+    int i = 0;
+    while (i < sample.length() && Character.isWhitespace(sample.charAt(i))) {
+      i++;
+    }
+    int digits = 0;
+    while (i < sample.length() && Character.isDigit(sample.charAt(i))) {
+      i++;
+      digits++;
+    }
+    if (digits == 0) {
+      return false;
+    }
+    // the id must be alone in its line and the next line must contain the arrow of a time line
+    int lineEnd = indexOf(sample, '\n', i);
+    if (lineEnd < 0 || sample.subSequence(i, lineEnd).toString().trim().length() > 0) {
+      return false;
+    }
+    int nextLineEnd = indexOf(sample, '\n', lineEnd + 1);
+    return sample
+        .subSequence(lineEnd + 1, nextLineEnd < 0 ? sample.length() : nextLineEnd)
+        .toString()
+        .contains("-->");
+  }
+
+  private static int indexOf(CharSequence s, char c, int from) {
+    for (int i = from; i < s.length(); i++) {
+      if (s.charAt(i) == c) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public Parser newParser(Reader reader) {
+    return new SrtParser(reader);
+  }
+}
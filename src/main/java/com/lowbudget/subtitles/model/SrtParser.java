@@ -0,0 +1,131 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.model;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/** A streaming parser for the SRT format */
+final class SrtParser extends LineParser {
+
+  /** the end of the subtitle parsed by the last call to {@link #parseTimeLine()} */
+  private int end;
+
+  /** the position after the timestamp parsed by the last call to {@link #parseTime(int)} */
+  private int timeEnd;
+
+  SrtParser(Reader reader) {
+    super(reader);
+  }
+
+  @Override
+  public boolean next(SubtitleStore.Builder builder) throws IOException {
+    // skip any blank lines before the subtitle id
+    do {
+      if (!readLine()) {
+        return false;
+      }
+    } while (isBlank());
+
+    int id = parseId();
+
+    if (!readLine()) {
+      throw new SubtitleFormatException(lineNumber, "Missing time line for subtitle " + id);
+    }
+    int start = parseTimeLine();
+
+    // the text spans all lines up to the next empty line or the end of input
+    textLength = 0;
+    while (readLine() && lineLength > 0) {
+      appendTextLine();
+    }
+
+    addTrimmedText(builder, id, start, end);
+    return true;
+  }
+
+  private int parseId() {
+    int i = skipWhitespace(0);
+    int id = 0;
+    int digits = 0;
+    while (i < lineLength && isDigit(line[i])) {
+      id = id * 10 + (line[i++] - '0');
+      digits++;
+    }
+    if (digits == 0 || skipWhitespace(i) != lineLength) {
+      throw new SubtitleFormatException(lineNumber, "Invalid subtitle id: " + currentLine());
+    }
+    return id;
+  }
+
+  private int parseTimeLine() {
+    int i = skipWhitespace(0);
+    int start = parseTime(i);
+    i = skipWhitespace(timeEnd);
+    if (i + 3 > lineLength || line[i] != '-' || line[i + 1] != '-' || line[i + 2] != '>') {
+      throw invalidTime();
+    }
+    i = skipWhitespace(i + 3);
+    this.end = parseTime(i);
+    // anything after the end time (i.e. position coordinates) is ignored
+    return start;
+  }
+
+  /** Parses a timestamp in the HH:MM:SS,mmm format and returns it in milliseconds */
+  private int parseTime(int from) {
+    int i = from;
+    int hours = 0;
+    int digits = 0;
+    while (i < lineLength && isDigit(line[i])) {
+      hours = hours * 10 + (line[i++] - '0');
+      digits++;
+    }
+    if (digits == 0 || !expect(i, ':')) {
+      throw invalidTime();
+    }
+    int minutes = twoDigits(i + 1);
+    if (!expect(i + 3, ':')) {
+      throw invalidTime();
+    }
+    int seconds = twoDigits(i + 4);
+    i += 6;
+    // some files use a dot instead of a comma
+    if (!expect(i, ',') && !expect(i, '.')) {
+      throw invalidTime();
+    }
+    i++;
+    int millis = 0;
+    int scale = 100;
+    while (i < lineLength && isDigit(line[i]) && scale > 0) {
+      millis += (line[i++] - '0') * scale;
+      scale /= 10;
+    }
+    if (scale == 100 || minutes > 59 || seconds > 59) {
+      throw invalidTime();
+    }
+    this.timeEnd = i;
+    return ((hours * 60 + minutes) * 60 + seconds) * 1000 + millis;
+  }
+}
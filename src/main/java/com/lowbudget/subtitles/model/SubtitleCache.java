@@ -0,0 +1,398 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.model;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps parsed subtitle files in a compact binary format, so opening the same file again does not
+ * need to parse it.
+ *
+ * <p>A cache entry is named after a fingerprint of the contents and the size of the subtitles file.
+ * It contains the columns of a {@link SubtitleStore} followed by its text arena and a checksum of
+ * everything before it:
+ *
+ * <pre>
+ * int magic, int version
+ * long source size, long source last modified time, long source fingerprint
+ * modified UTF-8 source charset name
+ * int count, int arena length
+ * int[count] ids, starts, ends, text offsets, text lengths
+ * char[arena length] text
+ * long CRC32 checksum
+ * </pre>
+ *
+ * The entry is memory mapped when it is read and the text is read directly from the mapped file.
+ * Entries that do not match the subtitles file or fail the checks are ignored and overwritten.
+ *
+ * <p>The entries of files that are modified or no longer opened are not needed anymore, so when the
+ * entries grow larger than the maximum size of the cache the least recently used ones are deleted
+ * after writing a new one.
+ */
+@Slf4j
+public class SubtitleCache {
+
+  private static final int MAGIC = 0x53554243; // "SUBC"
+
+  /** increase whenever the format changes so entries written by older versions are regenerated */
+  private static final int VERSION = 2;
+
+  /** the size of the header without the charset name */
+  private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 8 + 2 + 4 + 4;
+
+  private static final int CHECKSUM_SIZE = 8;
+
+  /** the size of each block of the subtitles file used to compute its fingerprint */
+  private static final int FINGERPRINT_BLOCK = 64 * 1024;
+
+  private static final String ENTRY_SUFFIX = ".bin";
+
+  /** the default maximum size of all entries, enough for a few of the largest files */
+  public static final long DEFAULT_MAX_SIZE = 512L * 1024 * 1024;
+
+  private static final SubtitleCache DEFAULT = new SubtitleCache(new File(".", "cache"));
+
+  private final File directory;
+
+  private final long maxSize;
+
+  public SubtitleCache(File directory) {
+    this(directory, DEFAULT_MAX_SIZE);
+  }
+
+  /**
+   * @param maxSize the size in bytes the entries are reduced to after writing a new one. The new
+   *     entry is always kept, even if it is larger
+   */
+  public SubtitleCache(File directory, long maxSize) {
+    this.directory = directory;
+    this.maxSize = maxSize;
+  }
+
+  public static SubtitleCache getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * Reads the cached subtitles of the specified file.
+   *
+   * @return the subtitles or {@code null} if there is no valid cache entry for the file
+   */
+  public SubtitleList load(File source) {
+    try {
+      long size = source.length();
+      long modified = source.lastModified();
+      long fingerprint = fingerprint(source);
+      File entry = entryFile(size, fingerprint);
+      if (!entry.isFile()) {
+        return null;
+      }
+      SubtitleList subtitles = read(entry, size, modified, fingerprint);
+      if (subtitles == null) {
+        log.info("Ignoring stale or corrupt cache entry: {}", entry);
+        return null;
+      }
+      // the modification time of the entries is when they were last used, to evict the eldest
+      if (!entry.setLastModified(System.currentTimeMillis())) {
+        log.debug("Could not update the last use of cache entry: {}", entry);
+      }
+      log.debug("Loaded {} subtitles from cache entry: {}", subtitles.size(), entry);
+      return subtitles;
+    } catch (IOException | RuntimeException | OutOfMemoryError e) {
+      log.info("Could not read cache entry for file: {}", source, e);
+      return null;
+    }
+  }
+
+  /**
+   * Writes the subtitles of the specified file to the cache, replacing any existing entry. Errors
+   * are only logged since the cache is not required for loading.
+   */
+  public void store(File source, SubtitleList subtitles) {
+    try {
+      long size = source.length();
+      long modified = source.lastModified();
+      long fingerprint = fingerprint(source);
+      Files.createDirectories(directory.toPath());
+
+      // write to a temporary file and move it in place, so a partially written entry is never seen
+      Path target = entryFile(size, fingerprint).toPath();
+      Path temp = Files.createTempFile(directory.toPath(), "entry", ".tmp");
+      try {
+        try (OutputStream out = Files.newOutputStream(temp)) {
+          write(out, subtitles, size, modified, fingerprint);
+        }
+        move(temp, target);
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+      log.debug("Stored {} subtitles to cache entry: {}", subtitles.size(), target);
+      evict(target.toFile());
+    } catch (IOException | RuntimeException | OutOfMemoryError e) {
+      // the subtitles are already loaded, failing to cache them must not fail the load
+      log.info("Could not write cache entry for file: {}", source, e);
+    }
+  }
+
+  private static void move(Path from, Path to) throws IOException {
+    try {
+      Files.move(from, to, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private File entryFile(long size, long fingerprint) {
+    String name = Long.toHexString(fingerprint) + "-" + Long.toHexString(size) + ENTRY_SUFFIX;
+    return new File(directory, name);
+  }
+
+  /** Deletes the least recently used entries, except the specified one, until they fit */
+  private void evict(File keep) {
+    File[] entries = directory.listFiles((dir, name) -> name.endsWith(ENTRY_SUFFIX));
+    if (entries == null) {
+      return;
+    }
+    long total = 0;
+    long[] lastUsed = new long[entries.length];
+    for (int i = 0; i < entries.length; i++) {
+      total += entries[i].length();
+      lastUsed[i] = entries[i].lastModified();
+    }
+    // sorted by the times read once, since they change if another instance uses an entry meanwhile
+    Integer[] order = new Integer[entries.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, Comparator.comparingLong(i -> lastUsed[i]));
+    for (int i : order) {
+      if (total <= maxSize) {
+        break;
+      }
+      File entry = entries[i];
+      if (entry.equals(keep)) {
+        continue;
+      }
+      long length = entry.length();
+      try {
+        Files.deleteIfExists(entry.toPath());
+        total -= length;
+        log.debug("Evicted cache entry: {}", entry);
+      } catch (IOException e) {
+        // i.e. on Windows an entry cannot be deleted while it is mapped
+        log.debug("Could not evict cache entry: {}", entry, e);
+      }
+    }
+  }
+
+  /**
+   * Computes a checksum of the blocks at the start, the middle and the end of the file. Reading the
+   * whole file would take about as long as parsing it.
+   */
+  private static long fingerprint(File source) throws IOException {
+    CRC32 crc = new CRC32();
+    try (FileChannel channel = FileChannel.open(source.toPath(), StandardOpenOption.READ)) {
+      long size = channel.size();
+      ByteBuffer block = ByteBuffer.allocate(FINGERPRINT_BLOCK);
+      long[] positions = {0, size / 2 - FINGERPRINT_BLOCK / 2, size - FINGERPRINT_BLOCK};
+      for (long position : positions) {
+        // called through Buffer, since the ByteBuffer overrides added in Java 9 are not in Java 8
+        ((Buffer) block).clear();
+        channel.read(block, Math.max(0, position));
+        ((Buffer) block).flip();
+        crc.update(block.array(), 0, block.limit());
+      }
+    }
+    return crc.getValue();
+  }
+
+  private static void write(
+      OutputStream target, SubtitleList subtitles, long size, long modified, long fingerprint)
+      throws IOException {
+    SubtitleStore store = subtitles.getStore();
+    int count = store.size();
+    CheckedOutputStream checked = new CheckedOutputStream(target, new CRC32());
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(checked, 64 * 1024));
+
+    // the text of a mapped file is written one subtitle after the other, since it can be larger
+    // than what fits in the heap. The lengths are needed before the text, so it is decoded twice
+    char[] arena = null;
+    int[] textOffsets = store.textOffsets;
+    int[] textLengths = store.textLengths;
+    long arenaLength;
+    if (store.text instanceof SubtitleStore.CharArena) {
+      arena = ((SubtitleStore.CharArena) store.text).chars;
+      arenaLength = arena.length;
+    } else {
+      textOffsets = new int[count];
+      textLengths = new int[count];
+      arenaLength = 0;
+      for (int i = 0; i < count; i++) {
+        textOffsets[i] = (int) arenaLength;
+        textLengths[i] = store.getText(i).length();
+        arenaLength += textLengths[i];
+        if (arenaLength > Integer.MAX_VALUE) {
+          throw new IOException("The text of the subtitles is too large to be cached");
+        }
+      }
+    }
+
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeLong(size);
+    out.writeLong(modified);
+    out.writeLong(fingerprint);
+    out.writeUTF(subtitles.getCharset().name());
+    out.writeInt(count);
+    out.writeInt((int) arenaLength);
+    int[][] columns = {store.ids, store.starts, store.ends, textOffsets, textLengths};
+    for (int[] column : columns) {
+      for (int value : column) {
+        out.writeInt(value);
+      }
+    }
+    if (arena != null) {
+      for (char c : arena) {
+        out.writeChar(c);
+      }
+    } else {
+      for (int i = 0; i < count; i++) {
+        String text = store.getText(i);
+        if (text.length() != textLengths[i]) {
+          throw new IOException("The text of subtitle " + store.getId(i) + " has changed");
+        }
+        out.writeChars(text);
+      }
+    }
+    out.flush();
+
+    // the checksum itself is not included in the checksum
+    new DataOutputStream(target).writeLong(checked.getChecksum().getValue());
+  }
+
+  private static SubtitleList read(File entry, long size, long modified, long fingerprint)
+      throws IOException {
+    // a ByteBuffer, since MappedByteBuffer.duplicate() and slice() do not exist before Java 13
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(entry.toPath(), StandardOpenOption.READ)) {
+      if (channel.size() < HEADER_SIZE + CHECKSUM_SIZE || channel.size() > Integer.MAX_VALUE) {
+        return null;
+      }
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+
+    if (buffer.getInt() != MAGIC
+        || buffer.getInt() != VERSION
+        || buffer.getLong() != size
+        || buffer.getLong() != modified
+        || buffer.getLong() != fingerprint) {
+      return null;
+    }
+    int nameLength = buffer.getShort() & 0xffff;
+    if (HEADER_SIZE + nameLength + CHECKSUM_SIZE > buffer.capacity()) {
+      return null;
+    }
+    byte[] name = new byte[nameLength];
+    buffer.get(name);
+    int count = buffer.getInt();
+    int arenaLength = buffer.getInt();
+    long expectedSize = HEADER_SIZE + nameLength + 20L * count + 2L * arenaLength + CHECKSUM_SIZE;
+    if (count < 0 || arenaLength < 0 || expectedSize != buffer.capacity()) {
+      return null;
+    }
+
+    int checksumPosition = buffer.capacity() - CHECKSUM_SIZE;
+    ByteBuffer content = buffer.duplicate();
+    ((Buffer) content).position(0).limit(checksumPosition);
+    CRC32 crc = new CRC32();
+    crc.update(content);
+    if (crc.getValue() != buffer.getLong(checksumPosition)) {
+      return null;
+    }
+
+    int[][] columns = new int[5][count];
+    for (int[] column : columns) {
+      buffer.asIntBuffer().get(column);
+      ((Buffer) buffer).position(buffer.position() + 4 * count);
+    }
+
+    // the text stays in the mapped file
+    ByteBuffer textBytes = buffer.slice();
+    ((Buffer) textBytes).limit(2 * arenaLength);
+    CharBuffer text = textBytes.asCharBuffer();
+
+    int[] offsets = columns[3];
+    int[] lengths = columns[4];
+    for (int i = 0; i < count; i++) {
+      if (offsets[i] < 0 || lengths[i] < 0 || offsets[i] + lengths[i] > arenaLength) {
+        return null;
+      }
+    }
+    // the name is ASCII, which is the same in modified UTF-8
+    String charsetName = new String(name, StandardCharsets.US_ASCII);
+    if (!Charset.isSupported(charsetName)) {
+      return null;
+    }
+    SubtitleStore store =
+        new SubtitleStore(
+            columns[0], columns[1], columns[2], offsets, lengths, new MappedCharText(text));
+    return new SubtitleList(store, Charset.forName(charsetName));
+  }
+
+  /** Text read from the mapped cache entry */
+  private static final class MappedCharText implements SubtitleStore.Text {
+
+    private final CharBuffer chars;
+
+    MappedCharText(CharBuffer chars) {
+      this.chars = chars;
+    }
+
+    @Override
+    public String get(int offset, int length) {
+      return chars.subSequence(offset, offset + length).toString();
+    }
+  }
+}
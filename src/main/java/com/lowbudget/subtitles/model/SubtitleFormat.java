@@ -0,0 +1,68 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.model;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
+/**
+ * A subtitle file format. Formats are discovered with {@link java.util.ServiceLoader}, so a format
+ * is added by implementing this interface and listing the implementation in {@code
+ * META-INF/services/com.lowbudget.subtitles.model.SubtitleFormat}.
+ *
+ * @see SubtitleFormats
+ */
+public interface SubtitleFormat {
+
+  /** The name displayed to the user */
+  String getName();
+
+  /** The lower case extensions of the files in this format */
+  List<String> getExtensions();
+
+  /**
+   * Checks whether the beginning of a file is in this format. It is used for files whose extension
+   * does not match any format.
+   *
+   * @param sample the first characters of the file, the last line may be incomplete
+   */
+  boolean accepts(CharSequence sample);
+
+  /** Creates a parser that reads the subtitles from the reader */
+  Parser newParser(Reader reader);
+
+  /** Parses the subtitles of a file one at a time, so they can be used while the file is read */
+  interface Parser {
+
+    /**
+     * Parses the next subtitle and adds it to the builder.
+     *
+     * @return {@code false} if the end of input has been reached
+     * @throws SubtitleFormatException if the input is not valid
+     */
+    boolean next(SubtitleStore.Builder builder) throws IOException;
+  }
+}
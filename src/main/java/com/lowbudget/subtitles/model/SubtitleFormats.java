@@ -0,0 +1,111 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.ServiceLoader;
+import lombok.extern.slf4j.Slf4j;
+
+/** The subtitle formats available, discovered once with {@link ServiceLoader} */
+@Slf4j
+public final class SubtitleFormats {
+
+  /** used for files that do not match any format, which is what all files were before formats */
+  private static final SubtitleFormat DEFAULT_FORMAT = new SrtFormat();
+
+  private static final List<SubtitleFormat> FORMATS = discover();
+
+  private SubtitleFormats() {
+    // not allow instantiation
+  }
+
+  private static List<SubtitleFormat> discover() {
+    List<SubtitleFormat> formats = new ArrayList<>();
+    for (SubtitleFormat format : ServiceLoader.load(SubtitleFormat.class)) {
+      log.debug("Found subtitle format {} {}", format.getName(), format.getExtensions());
+      formats.add(format);
+    }
+    return Collections.unmodifiableList(formats);
+  }
+
+  public static List<SubtitleFormat> getFormats() {
+    return FORMATS;
+  }
+
+  /** Returns the extensions of all formats */
+  public static List<String> getExtensions() {
+    List<String> extensions = new ArrayList<>();
+    for (SubtitleFormat format : FORMATS) {
+      extensions.addAll(format.getExtensions());
+    }
+    return extensions;
+  }
+
+  /** Finds the format of a file by its extension */
+  public static SubtitleFormat forFileName(String fileName) {
+    if (fileName == null) {
+      return null;
+    }
+    int dot = fileName.lastIndexOf('.');
+    if (dot < 0) {
+      return null;
+    }
+    String extension = fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+    for (SubtitleFormat format : FORMATS) {
+      if (format.getExtensions().contains(extension)) {
+        return format;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Finds the format of a file by its extension or, if no format has that extension, by the first
+   * characters of the file. Files that do not match any format are assumed to be SRT.
+   *
+   * @param fileName the name of the file or {@code null} if not known
+   * @param sample the first characters of the file
+   */
+  public static SubtitleFormat forFile(String fileName, CharSequence sample) {
+    SubtitleFormat byName = forFileName(fileName);
+    if (byName != null) {
+      return byName;
+    }
+    for (SubtitleFormat format : FORMATS) {
+      if (format.accepts(sample)) {
+        return format;
+      }
+    }
+    return DEFAULT_FORMAT;
+  }
+
+  /** Checks whether the subtitles of the file can be indexed with {@link MappedSrtIndexer} */
+  /*package*/ static boolean isSrt(SubtitleFormat format) {
+    return format instanceof SrtFormat;
+  }
+}
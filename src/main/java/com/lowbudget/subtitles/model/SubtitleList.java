@@ -24,29 +24,315 @@
 
 package com.lowbudget.subtitles.model;
 
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import lombok.Getter;
 
 public class SubtitleList {
 
-  private final List<Subtitle> subtitles;
+  @Getter
+  private final SubtitleStore store;
 
   @Getter
   private final int totalDuration;
 
+  /** the encoding of the file the subtitles were loaded from */
+  @Getter
+  private final Charset charset;
+
+  /** the start time of each subtitle in list order */
+  private final int[] starts;
+
+  /** the end time of each subtitle in list order */
+  private final int[] ends;
+
+  /**
+   * the maximum end time of all subtitles up to (and including) each index. This is non-decreasing
+   * even if subtitles overlap, so we can binary search it
+   */
+  private final int[] maxEnds;
+
+  /**
+   * if the subtitles are not sorted by their start time we cannot use the cursor or binary search
+   * and fall back to scanning the list
+   */
+  private final boolean sorted;
+
+  /** index of the first subtitle whose max end is not before the last lookup */
+  private int cursor;
+
+  /** the elapsed duration used in the last lookup */
+  private int lastElapsed;
+
+  /** the index of the subtitle returned by the last {@link #findSubtitle(int)} or -1 */
+  private int foundIndex = -1;
+
+  /** the subtitle returned by the last {@link #findSubtitle(int)}, kept while it is displayed */
+  private Subtitle foundSubtitle;
+
+  private final IntervalIndex intervalIndex;
+
+  /** the subtitles displayed at the last lookup of the active subtitles */
+  private final List<Subtitle> active = new ArrayList<>();
+
+  private final List<Subtitle> activeView = Collections.unmodifiableList(active);
+
+  /** receives the new active subtitles while the previous ones are still read */
+  private final List<Subtitle> changed = new ArrayList<>();
+
+  /** the indices of the active subtitles */
+  private int[] activeIndices;
+
+  private int activeCount;
+
+  /** receives the indices found by the interval index before they are compared to the active */
+  private int[] foundIndices;
+
+  /** incremented every time the active subtitles change */
+  @Getter
+  private int activeVersion;
+
+  /** the active subtitles remain the same for any elapsed duration in [activeFrom, activeUntil) */
+  private int activeFrom;
+
+  private int activeUntil;
+
   public SubtitleList(List<Subtitle> list) {
-    this.subtitles = list;
-    this.totalDuration = list.get(list.size() - 1).getEnd();
+    this(SubtitleStore.of(list));
+  }
+
+  public SubtitleList(SubtitleStore store) {
+    this(store, StandardCharsets.UTF_8);
+  }
+
+  public SubtitleList(SubtitleStore store, Charset charset) {
+    this.store = store;
+    this.charset = charset;
+    this.starts = store.starts;
+    this.ends = store.ends;
+
+    int size = starts.length;
+    this.maxEnds = new int[size];
+
+    boolean isSorted = true;
+    int maxEnd = Integer.MIN_VALUE;
+    for (int i = 0; i < size; i++) {
+      maxEnd = Math.max(maxEnd, ends[i]);
+      maxEnds[i] = maxEnd;
+      if (i > 0 && starts[i] < starts[i - 1]) {
+        isSorted = false;
+      }
+    }
+    this.sorted = isSorted;
+    // subtitles are not always in time order, i.e. ASS events, so the last one may not end last
+    this.totalDuration = size == 0 ? 0 : maxEnds[size - 1];
+
+    this.intervalIndex = new IntervalIndex(starts, ends);
+    this.activeIndices = new int[size];
+    this.foundIndices = new int[size];
   }
 
+  /**
+   * Finds the first subtitle (in list order) that is displayed at the specified elapsed duration.
+   *
+   * <p>When playing forward the lookup continues from where the previous one stopped, so on every
+   * tick it only needs to check the next few subtitles. Moving backwards (i.e. a seek operation)
+   * falls back to a binary search. The subtitle is only created when a different one is found.
+   */
   public Subtitle findSubtitle(int elapsed) {
-    return subtitles.stream() //
-        .filter(s -> s.inRange(elapsed))
-        .findFirst()
-        .orElse(null);
+    int index = findIndex(elapsed);
+    if (index < 0) {
+      return null;
+    }
+    if (index != foundIndex) {
+      foundIndex = index;
+      foundSubtitle = store.get(index);
+    }
+    return foundSubtitle;
+  }
+
+  /*package*/ int findIndex(int elapsed) {
+    if (!sorted) {
+      return scan(elapsed);
+    }
+
+    if (elapsed < lastElapsed) {
+      cursor = lowerBound(maxEnds, 0, cursor, elapsed);
+    } else if (cursor < maxEnds.length && maxEnds[cursor] < elapsed) {
+      // when playing this is the next subtitle, after a seek forward it can be anywhere
+      cursor++;
+      if (cursor < maxEnds.length && maxEnds[cursor] < elapsed) {
+        cursor = lowerBound(maxEnds, cursor + 1, maxEnds.length, elapsed);
+      }
+    }
+    lastElapsed = elapsed;
+
+    // all subtitles before the cursor end before the elapsed duration, and since the list is sorted
+    // all subtitles after it do not start before the one at the cursor, so this is the only
+    // candidate
+    if (cursor < starts.length && starts[cursor] <= elapsed) {
+      return cursor;
+    }
+    return -1;
+  }
+
+  /**
+   * Finds all subtitles that are displayed at the specified elapsed duration in list order. The
+   * first one is always the one returned by {@link #findSubtitle(int)}.
+   *
+   * <p>The returned list is read-only and is reused by the next call. It is only modified when the
+   * active subtitles change, which also increments the {@link #getActiveVersion() active version}.
+   * Only the subtitles that were not already active are created then, so lookups that do not change
+   * the active subtitles do not allocate.
+   */
+  public List<Subtitle> findActiveSubtitles(int elapsed) {
+    if (elapsed >= activeFrom && elapsed < activeUntil) {
+      // no subtitle started or ended since the last lookup
+      return activeView;
+    }
+
+    int count = intervalIndex.findAll(elapsed, foundIndices);
+    this.activeFrom = elapsed;
+    this.activeUntil = findUntil(elapsed, foundIndices, count);
+    if (isActive(foundIndices, count)) {
+      // i.e. after a seek within the same subtitle
+      return activeView;
+    }
+
+    int[] previous = activeIndices;
+    int previousCount = activeCount;
+    activeIndices = foundIndices;
+    foundIndices = previous;
+    activeCount = count;
+    activeVersion++;
+
+    // both index arrays are sorted, so the subtitles that stay active are found in a single pass
+    int kept = 0;
+    for (int k = 0; k < count; k++) {
+      int index = activeIndices[k];
+      while (kept < previousCount && previous[kept] < index) {
+        kept++;
+      }
+      changed.add(
+          kept < previousCount && previous[kept] == index ? active.get(kept) : store.get(index));
+    }
+    active.clear();
+    for (int k = 0; k < count; k++) {
+      active.add(changed.get(k));
+    }
+    changed.clear();
+    return activeView;
+  }
+
+  /**
+   * Finds all subtitles that are displayed at the specified elapsed duration in list order, without
+   * affecting the active subtitles. A new list is returned every time, so it is meant for
+   * occasional lookups such as previews.
+   */
+  public List<Subtitle> findSubtitlesAt(int elapsed) {
+    // the found indices are only kept during a lookup of the active subtitles
+    int count = intervalIndex.findAll(elapsed, foundIndices);
+    List<Subtitle> result = new ArrayList<>(count);
+    for (int k = 0; k < count; k++) {
+      result.add(store.get(foundIndices[k]));
+    }
+    return result;
+  }
+
+  private boolean isActive(int[] indices, int count) {
+    if (count != activeCount) {
+      return false;
+    }
+    for (int k = 0; k < count; k++) {
+      if (indices[k] != activeIndices[k]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Finds the first elapsed duration after the specified one at which the active subtitles change,
+   * i.e. when the next subtitle starts or one of the active ones ends.
+   *
+   * @return the elapsed duration or {@link Integer#MAX_VALUE} if the active subtitles never change
+   */
+  public int findNextChange(int elapsed) {
+    if (elapsed >= activeFrom && elapsed < activeUntil) {
+      return activeUntil;
+    }
+    // the active list is not updated, it may still be displayed
+    return findUntil(elapsed, foundIndices, intervalIndex.findAll(elapsed, foundIndices));
+  }
+
+  /** Finds the next change given the indices of the subtitles active at the elapsed duration */
+  private int findUntil(int elapsed, int[] indices, int count) {
+    int until = intervalIndex.nextStart(elapsed);
+    if (until < 0) {
+      until = Integer.MAX_VALUE;
+    }
+    for (int k = 0; k < count; k++) {
+      // end is inclusive
+      until = Math.min(until, ends[indices[k]] + 1);
+    }
+    return until;
+  }
+
+  private int scan(int elapsed) {
+    for (int i = 0; i < starts.length; i++) {
+      if (elapsed >= starts[i] && elapsed <= ends[i]) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /** Returns the index of the first element in [low, high) that is not less than the value */
+  private static int lowerBound(int[] values, int low, int high, int value) {
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (values[mid] < value) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Iterates over the subtitles that start after the specified elapsed duration in the order they
+   * start. The iterator only reads data that never changes, so it can be used by any thread.
+   *
+   * @param count the maximum number of subtitles returned
+   */
+  public Iterator<Subtitle> findUpcomingSubtitles(int elapsed, int count) {
+    int from = intervalIndex.firstStartAfter(elapsed);
+    int to = (int) Math.min(size(), (long) from + count);
+    return new Iterator<Subtitle>() {
+      private int position = from;
+
+      @Override
+      public boolean hasNext() {
+        return position < to;
+      }
+
+      @Override
+      public Subtitle next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return store.get(intervalIndex.indexByStart(position++));
+      }
+    };
   }
 
   public int size() {
-    return this.subtitles.size();
+    return this.store.size();
   }
 }
@@ -24,96 +24,297 @@
 
 package com.lowbudget.subtitles.model;
 
+import com.lowbudget.subtitles.metrics.FlightEvents;
+import com.lowbudget.subtitles.metrics.PlaybackMetrics;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Scanner;
-import java.util.concurrent.TimeUnit;
-import java.util.regex.Pattern;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.SequenceInputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.StringUtils;
 
 @Slf4j
 public class SubtitleLoader {
 
-  public static final Pattern SEPARATOR = Pattern.compile("-->");
-  private static final Pattern TIME_PATTERN = Pattern.compile("\\d{2}:\\d{2}:\\d{2},\\d{3}");
+  /** files larger than this are loaded with {@link #loadMapped(File)} */
+  public static final long MAPPED_LOAD_THRESHOLD = 8L * 1024 * 1024;
+
+  /** the number of subtitles parsed before the first partial list is reported */
+  private static final int FIRST_PARTIAL_SIZE = 64;
+
+  /** how often (in subtitles) the progress is reported and cancellation is checked */
+  /*package*/ static final int PROGRESS_INTERVAL = 256;
+
+  /** mapped files larger than this are indexed in parallel */
+  public static final long PARALLEL_LOAD_THRESHOLD = 32L * 1024 * 1024;
+
+  private static final Listener NO_LISTENER = new Adapter();
 
   private SubtitleLoader() {
     // not allow instantiation
   }
 
-  @SneakyThrows
+  /** Receives the progress of a load operation. It is called from the thread that loads the file */
+  public interface Listener {
+
+    /** Called periodically with the percentage of the file that has been read */
+    void onProgress(int percent);
+
+    /**
+     * Called with the subtitles parsed so far, so they can be used before the whole file is read.
+     * Each call includes all subtitles of the previous one.
+     */
+    void onSubtitlesParsed(SubtitleList subtitles);
+
+    /** Checked periodically, when it returns true loading stops with a CancellationException */
+    boolean isCancelled();
+  }
+
+  public static class Adapter implements Listener {
+
+    @Override
+    public void onProgress(int percent) {
+      // to be implemented by descendants if needed
+    }
+
+    @Override
+    public void onSubtitlesParsed(SubtitleList subtitles) {
+      // to be implemented by descendants if needed
+    }
+
+    @Override
+    public boolean isCancelled() {
+      return false;
+    }
+  }
+
   public static SubtitleList load(File file) {
-    FileInputStream in = new FileInputStream(file);
-    return load(in);
+    return load(file, NO_LISTENER);
   }
 
-  public static SubtitleList load(InputStream input) {
+  /**
+   * Loads the subtitles of a file in any of the {@link SubtitleFormats}. Files that have been
+   * loaded before are read from the {@link SubtitleCache} and files loaded for the first time are
+   * added to it.
+   */
+  @SneakyThrows
+  public static SubtitleList load(File file, Listener listener) {
+    FlightEvents.Load event = FlightEvents.getDefault().beginLoad();
+    long begin = System.nanoTime();
+    SubtitleCache cache = SubtitleCache.getDefault();
+    SubtitleList subtitles = cache.load(file);
+    if (subtitles != null) {
+      listener.onProgress(100);
+      loaded(file, subtitles, true, begin, event);
+      return subtitles;
+    }
+
+    // only SRT files can be mapped, files without a known extension are assumed to be SRT
+    SubtitleFormat format = SubtitleFormats.forFileName(file.getName());
+    boolean srt = format == null || SubtitleFormats.isSrt(format);
+    if (file.length() > MAPPED_LOAD_THRESHOLD && srt) {
+      subtitles = loadMapped(file, listener);
+    } else {
+      subtitles = load(new FileInputStream(file), file.getName(), file.length(), listener);
+    }
+    loaded(file, subtitles, false, begin, event);
+    cache.store(file, subtitles);
+    return subtitles;
+  }
+
+  /** Records the metrics and the flight recorder event of a file that finished loading */
+  private static void loaded(
+      File file, SubtitleList subtitles, boolean cached, long begin, FlightEvents.Load event) {
+    PlaybackMetrics.getDefault().recordLoad(System.nanoTime() - begin, subtitles.size());
+    if (event != null) {
+      event.end(file.getPath(), file.length(), subtitles.size(), cached);
+    }
+  }
+
+  public static SubtitleList loadMapped(File file) {
+    return loadMapped(file, NO_LISTENER);
+  }
+
+  public static SubtitleList loadMapped(File file, Listener listener) {
+    return loadMapped(file, listener, ForkJoinPool.commonPool());
+  }
 
-    DateTimeFormatter localTimeFormatter = DateTimeFormatter.ofPattern("HH:mm:ss,SSS");
+  /**
+   * Loads the subtitles of an SRT file by mapping the file in memory. Only the times of the
+   * subtitles are read here, the text of each subtitle is decoded from the mapped file when it is
+   * displayed, so the memory used does not depend on the size of the file.
+   *
+   * <p>The subtitles are indexed by scanning the bytes of the file, which only works for encodings
+   * where the digits, the separators and the line terminators are single ASCII bytes. Files in
+   * other encodings (i.e. UTF-16) are loaded as a stream instead.
+   *
+   * <p>Files larger than {@link #PARALLEL_LOAD_THRESHOLD} are split in chunks that are indexed in
+   * parallel using the specified pool.
+   */
+  @SneakyThrows
+  public static SubtitleList loadMapped(File file, Listener listener, ForkJoinPool pool) {
+    // not a MappedByteBuffer, whose slice() override does not exist in Java 8
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new SubtitleFormatException("File is too large: " + file);
+      }
+      // the mapping remains valid after the channel is closed
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
 
-    List<Subtitle> list = new ArrayList<>();
+    CharsetDetector detector = CharsetDetector.detect(buffer);
+    Charset charset = detector.getCharset();
+    if (!isAsciiCompatible(charset)) {
+      log.debug("Loading file as a stream since it is encoded in {}: {}", charset, file);
+      return load(new FileInputStream(file), file.getName(), file.length(), listener);
+    }
 
-    try (Scanner scanner = new Scanner(input, StandardCharsets.UTF_8.name())) {
-      int id;
-      String start = null;
-      String end = null;
+    // skip the byte order mark, offsets of the text are relative to the slice
+    ((Buffer) buffer).position(detector.getBomLength());
+    ByteBuffer content = buffer.slice();
 
-      while (scanner.hasNextLine()) {
-        String line = scanner.nextLine();
-        log.trace("Parsed line: {}", line);
+    SubtitleStore store;
+    if (content.limit() > PARALLEL_LOAD_THRESHOLD && pool.getParallelism() > 1) {
+      store = ParallelSrtIndexer.index(content, charset, pool, listener);
+    } else {
+      MappedSrtIndexer indexer = new MappedSrtIndexer(content, 0, content.limit());
+      indexer.indexAll(listener);
+      store = MappedSrtIndexer.toStore(Collections.singletonList(indexer), charset);
+    }
+    listener.onProgress(100);
+    log.debug("Indexed {} subtitles in {} from mapped file: {}", store.size(), charset, file);
+    return new SubtitleList(store, charset);
+  }
 
-        id = Integer.parseInt(line.trim());
+  public static SubtitleList load(InputStream input) {
+    return load(input, null, -1, NO_LISTENER);
+  }
 
-        if (scanner.hasNextLine()) {
-          start = scanner.next(TIME_PATTERN);
+  public static SubtitleList load(InputStream input, long length, Listener listener) {
+    return load(input, null, length, listener);
+  }
 
-          scanner.next(SEPARATOR);
+  /**
+   * Loads the subtitles from the stream. The encoding and the format are detected from the first
+   * bytes of the stream, which are then decoded along with the rest of it, so the stream is read
+   * only once.
+   *
+   * @param input the stream to read, it is closed when loading finishes
+   * @param fileName the name of the file used to find its format by extension or {@code null}
+   * @param length the number of bytes in the stream used to report the progress or -1 if unknown
+   * @param listener receives the progress and the partially loaded subtitles
+   */
+  @SneakyThrows
+  public static SubtitleList load(
+      InputStream input, String fileName, long length, Listener listener) {
 
-          end = scanner.next(TIME_PATTERN);
+    SubtitleStore.Builder builder = new SubtitleStore.Builder();
+    int nextPartialSize = FIRST_PARTIAL_SIZE;
 
-          scanner.nextLine(); // read until end of line
-        }
+    CountingInputStream counter = new CountingInputStream(input);
+    byte[] sample = new byte[CharsetDetector.SAMPLE_SIZE];
+    int sampleLength = readFully(counter, sample);
+    CharsetDetector detector = CharsetDetector.detect(ByteBuffer.wrap(sample, 0, sampleLength));
+    Charset charset = detector.getCharset();
+    int bomLength = detector.getBomLength();
+    SubtitleFormat format =
+        SubtitleFormats.forFile(
+            fileName, charset.decode(ByteBuffer.wrap(sample, bomLength, sampleLength - bomLength)));
+    InputStream remaining =
+        new SequenceInputStream(
+            new ByteArrayInputStream(sample, bomLength, sampleLength - bomLength), counter);
 
-        String text = parseTextLine(scanner);
+    try (Reader reader = new InputStreamReader(remaining, charset)) {
+      SubtitleFormat.Parser parser = format.newParser(reader);
 
-        Subtitle subtitle =
-            new Subtitle(
-                id, toMillis(start, localTimeFormatter), toMillis(end, localTimeFormatter), text);
-        log.debug("Loaded subtitle: {}", subtitle);
-        list.add(subtitle);
+      while (parser.next(builder)) {
+        int size = builder.size();
+        if (size % PROGRESS_INTERVAL == 0) {
+          if (listener.isCancelled()) {
+            throw new CancellationException("Loading cancelled");
+          }
+          if (length > 0) {
+            listener.onProgress((int) (counter.count * 100 / length));
+          }
+        }
+
+        // report partial lists at doubling sizes so copying them costs linear time overall
+        if (size == nextPartialSize) {
+          listener.onSubtitlesParsed(new SubtitleList(builder.build(), charset));
+          nextPartialSize *= 2;
+        }
       }
     }
 
-    return new SubtitleList(list);
+    log.debug("Loaded {} {} subtitles in {}", builder.size(), format.getName(), charset);
+    listener.onProgress(100);
+    return new SubtitleList(builder.build(), charset);
   }
 
-  private static int toMillis(String timeString, DateTimeFormatter localTimeFormatter) {
-    LocalTime time = LocalTime.parse(timeString, localTimeFormatter);
-    return (int) TimeUnit.NANOSECONDS.toMillis(time.toNanoOfDay());
+  /** Reads until the array is full or the stream ends and returns the number of bytes read */
+  private static int readFully(InputStream input, byte[] bytes) throws IOException {
+    int length = 0;
+    while (length < bytes.length) {
+      int read = input.read(bytes, length, bytes.length - length);
+      if (read < 0) {
+        break;
+      }
+      length += read;
+    }
+    return length;
   }
 
-  private static String parseTextLine(Scanner scanner) {
-    String line;
-    StringBuilder text = new StringBuilder();
-    while (scanner.hasNextLine()) {
-      line = scanner.nextLine();
-      if (StringUtils.isNotEmpty(line)) {
-        line = line.replace("\r\n", "").replace("\n", "");
-        text.append(line)
-            .append(" ")
-            .append("\n");
-      } else {
-        break;
+  /** Checks whether the ASCII characters are encoded as single bytes with the same value */
+  private static boolean isAsciiCompatible(Charset charset) {
+    return !charset.name().startsWith("UTF-16") && !charset.name().startsWith("UTF-32");
+  }
+
+  /** Counts the bytes read so the progress can be computed */
+  private static class CountingInputStream extends FilterInputStream {
+
+    private long count;
+
+    CountingInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b >= 0) {
+        count++;
       }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int read = super.read(b, off, len);
+      if (read > 0) {
+        count += read;
+      }
+      return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = super.skip(n);
+      count += skipped;
+      return skipped;
     }
-    return text.toString().trim();
   }
 }
@@ -0,0 +1,240 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stores subtitles in columns of primitive arrays instead of one object per subtitle.
+ *
+ * <p>The text of all subtitles is kept in a single arena and each subtitle refers to its text by
+ * offset and length. Subtitles with the same text (i.e. a "♪" line repeated throughout a file)
+ * share it. {@link Subtitle} objects are only created when a subtitle is requested with {@link
+ * #get(int)}.
+ */
+public final class SubtitleStore {
+
+  /** Provides the text of the subtitles from the location stored for each one */
+  /*package*/ interface Text {
+    String get(int offset, int length);
+  }
+
+  /** Text stored in a character array */
+  /*package*/ static final class CharArena implements Text {
+
+    /*package*/ final char[] chars;
+
+    /*package*/ CharArena(char[] chars) {
+      this.chars = chars;
+    }
+
+    @Override
+    public String get(int offset, int length) {
+      return new String(chars, offset, length);
+    }
+  }
+
+  /*package*/ final int[] ids;
+  /*package*/ final int[] starts;
+  /*package*/ final int[] ends;
+  /*package*/ final int[] textOffsets;
+  /*package*/ final int[] textLengths;
+
+  /*package*/ final Text text;
+
+  /*package*/ SubtitleStore(
+      int[] ids, int[] starts, int[] ends, int[] textOffsets, int[] textLengths, Text text) {
+    this.ids = ids;
+    this.starts = starts;
+    this.ends = ends;
+    this.textOffsets = textOffsets;
+    this.textLengths = textLengths;
+    this.text = text;
+  }
+
+  public static SubtitleStore of(List<Subtitle> subtitles) {
+    Builder builder = new Builder();
+    for (Subtitle subtitle : subtitles) {
+      builder.add(subtitle.getId(), subtitle.getStart(), subtitle.getEnd(), subtitle.getText());
+    }
+    return builder.build();
+  }
+
+  public int size() {
+    return ids.length;
+  }
+
+  public int getId(int index) {
+    return ids[index];
+  }
+
+  public int getStart(int index) {
+    return starts[index];
+  }
+
+  public int getEnd(int index) {
+    return ends[index];
+  }
+
+  public String getText(int index) {
+    return text.get(textOffsets[index], textLengths[index]);
+  }
+
+  /** Creates a new {@link Subtitle} object for the subtitle at the specified index */
+  public Subtitle get(int index) {
+    return new Subtitle(ids[index], starts[index], ends[index], getText(index));
+  }
+
+  /** Collects subtitles in a store. Identical texts are stored only once. */
+  public static final class Builder {
+
+    private int count;
+    private int[] ids = new int[1024];
+    private int[] starts = new int[1024];
+    private int[] ends = new int[1024];
+    private int[] textOffsets = new int[1024];
+    private int[] textLengths = new int[1024];
+
+    private char[] arena = new char[16 * 1024];
+    private int arenaLength;
+
+    /**
+     * open addressing hash table of the distinct texts. Each slot holds the index of the first
+     * subtitle with that text plus one, zero means the slot is empty
+     */
+    private int[] table = new int[2048];
+    private int distinct;
+
+    public int size() {
+      return count;
+    }
+
+    public Builder add(int id, int start, int end, String text) {
+      return add(id, start, end, text.toCharArray(), 0, text.length());
+    }
+
+    /** Adds a subtitle whose text is in the range [offset, offset + length) of the array */
+    public Builder add(int id, int start, int end, char[] text, int offset, int length) {
+      if (count == ids.length) {
+        int newLength = count * 2;
+        ids = Arrays.copyOf(ids, newLength);
+        starts = Arrays.copyOf(starts, newLength);
+        ends = Arrays.copyOf(ends, newLength);
+        textOffsets = Arrays.copyOf(textOffsets, newLength);
+        textLengths = Arrays.copyOf(textLengths, newLength);
+      }
+      ids[count] = id;
+      starts[count] = start;
+      ends[count] = end;
+      textLengths[count] = length;
+      textOffsets[count] = intern(text, offset, length);
+      count++;
+      return this;
+    }
+
+    /** Returns the offset of the text in the arena, appending it if it is not already there */
+    private int intern(char[] text, int offset, int length) {
+      int hash = 0;
+      for (int i = offset; i < offset + length; i++) {
+        hash = 31 * hash + text[i];
+      }
+      int mask = table.length - 1;
+      int slot = mix(hash) & mask;
+      while (table[slot] != 0) {
+        int other = table[slot] - 1;
+        if (textLengths[other] == length && equalsArena(textOffsets[other], text, offset, length)) {
+          return textOffsets[other];
+        }
+        slot = (slot + 1) & mask;
+      }
+
+      if (arenaLength + length > arena.length) {
+        arena = Arrays.copyOf(arena, Math.max(arenaLength + length, arena.length * 2));
+      }
+      System.arraycopy(text, offset, arena, arenaLength, length);
+      int arenaOffset = arenaLength;
+      arenaLength += length;
+
+      // the text offset of this subtitle must be set before it can be found through the table
+      textOffsets[count] = arenaOffset;
+      table[slot] = count + 1;
+      if (++distinct * 2 > table.length) {
+        rehash();
+      }
+      return arenaOffset;
+    }
+
+    private boolean equalsArena(int arenaOffset, char[] text, int offset, int length) {
+      for (int i = 0; i < length; i++) {
+        if (arena[arenaOffset + i] != text[offset + i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private void rehash() {
+      int[] oldTable = table;
+      table = new int[oldTable.length * 2];
+      int mask = table.length - 1;
+      for (int entry : oldTable) {
+        if (entry != 0) {
+          int index = entry - 1;
+          int hash = 0;
+          int offset = textOffsets[index];
+          for (int i = offset; i < offset + textLengths[index]; i++) {
+            hash = 31 * hash + arena[i];
+          }
+          int slot = mix(hash) & mask;
+          while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+          }
+          table[slot] = entry;
+        }
+      }
+    }
+
+    private static int mix(int hash) {
+      // spread the bits so similar texts do not end up in neighbouring slots
+      int h = hash * 0x9E3779B9;
+      return h ^ (h >>> 16);
+    }
+
+    /**
+     * Creates a store with the subtitles added so far. The builder can still be used afterwards,
+     * which allows creating snapshots while a file is being loaded.
+     */
+    public SubtitleStore build() {
+      return new SubtitleStore(
+          Arrays.copyOf(ids, count),
+          Arrays.copyOf(starts, count),
+          Arrays.copyOf(ends, count),
+          Arrays.copyOf(textOffsets, count),
+          Arrays.copyOf(textLengths, count),
+          new CharArena(Arrays.copyOf(arena, arenaLength)));
+    }
+  }
+}
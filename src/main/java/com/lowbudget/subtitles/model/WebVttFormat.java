@@ -0,0 +1,60 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.model;
+
+import java.io.Reader;
+import java.util.Collections;
+import java.util.List;
+
+/** The Web Video Text Tracks format */
+public class WebVttFormat implements SubtitleFormat {
+
+  @Override
+  public String getName() {
+    return "WebVTT";
+  }
+
+  @Override
+  public List<String> getExtensions() {
+    return Collections.singletonList("vtt");
+  }
+
+  /** Accepts text that starts with the WEBVTT header */
+  @Override
+  public boolean accepts(CharSequence sample) {
+    String header = "WEBVTT";
+    if (sample.length() < header.length()
+        || !header.contentEquals(sample.subSequence(0, header.length()))) {
+      return false;
+    }
+    return sample.length() == header.length()
+        || Character.isWhitespace(sample.charAt(header.length()));
+  }
+
+  @Override
+  public Parser newParser(Reader reader) {
+    return new WebVttParser(reader);
+  }
+}
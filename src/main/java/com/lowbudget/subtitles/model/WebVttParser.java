@@ -0,0 +1,230 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.model;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A streaming parser for the WebVTT format.
+ *
+ * <p>Cue identifiers are optional and may be any text, so cues are numbered in file order. Cue
+ * settings are ignored, as are the header, NOTE, STYLE and REGION blocks which are skipped a line
+ * at a time. Only the bold, italic and underline tags of the cue text are kept since the others
+ * (i.e. voice and class spans) have no meaning when the text is displayed as HTML.
+ */
+final class WebVttParser extends LineParser {
+
+  private static final String HEADER = "WEBVTT";
+
+  private boolean headerRead;
+
+  /** the number of cues parsed so far */
+  private int count;
+
+  /** the end of the cue parsed by the last call to {@link #parseTimeLine()} */
+  private int end;
+
+  /** the position after the timestamp parsed by the last call to {@link #parseTime(int)} */
+  private int timeEnd;
+
+  WebVttParser(Reader reader) {
+    super(reader);
+  }
+
+  @Override
+  public boolean next(SubtitleStore.Builder builder) throws IOException {
+    if (!headerRead) {
+      readHeader();
+      headerRead = true;
+    }
+
+    while (true) {
+      // skip any blank lines before the next block
+      do {
+        if (!readLine()) {
+          return false;
+        }
+      } while (isBlank());
+
+      if (isBlock("NOTE") || isBlock("STYLE") || isBlock("REGION")) {
+        skipBlock();
+        continue;
+      }
+
+      // the line before the time line is the optional cue identifier
+      if (indexOf("-->") < 0 && (!readLine() || lineLength == 0)) {
+        throw new SubtitleFormatException(lineNumber, "Missing time line for cue");
+      }
+      int start = parseTimeLine();
+
+      textLength = 0;
+      while (readLine() && lineLength > 0) {
+        appendCueTextLine();
+      }
+
+      addTrimmedText(builder, ++count, start, end);
+      return true;
+    }
+  }
+
+  private void readHeader() throws IOException {
+    if (!readLine() || !isBlock(HEADER)) {
+      throw new SubtitleFormatException(lineNumber, "Missing " + HEADER + " header");
+    }
+    // the header may be followed by metadata lines up to the first empty line
+    skipBlock();
+  }
+
+  /** Checks whether the current line is the keyword, optionally followed by a space and text */
+  private boolean isBlock(String keyword) {
+    return startsWith(keyword)
+        && (lineLength == keyword.length()
+            || line[keyword.length()] == ' '
+            || line[keyword.length()] == '\t');
+  }
+
+  private void skipBlock() throws IOException {
+    while (readLine() && lineLength > 0) {
+      // the line is dropped
+    }
+  }
+
+  private int parseTimeLine() {
+    int i = skipWhitespace(0);
+    int start = parseTime(i);
+    i = skipWhitespace(timeEnd);
+    if (i + 3 > lineLength || line[i] != '-' || line[i + 1] != '-' || line[i + 2] != '>') {
+      throw invalidTime();
+    }
+    i = skipWhitespace(i + 3);
+    this.end = parseTime(i);
+    // the cue settings after the end time (i.e. position:10% align:start) are ignored
+    if (timeEnd < lineLength && line[timeEnd] > ' ') {
+      throw invalidTime();
+    }
+    return start;
+  }
+
+  /** Parses a timestamp in the HH:MM:SS.mmm or MM:SS.mmm format and returns it in milliseconds */
+  private int parseTime(int from) {
+    int i = from;
+    int first = 0;
+    int digits = 0;
+    while (i < lineLength && isDigit(line[i])) {
+      first = first * 10 + (line[i++] - '0');
+      digits++;
+    }
+    if (digits == 0 || !expect(i, ':')) {
+      throw invalidTime();
+    }
+    int second = twoDigits(i + 1);
+    i += 3;
+
+    int hours;
+    int minutes;
+    int seconds;
+    if (expect(i, ':')) {
+      hours = first;
+      minutes = second;
+      seconds = twoDigits(i + 1);
+      i += 3;
+    } else {
+      hours = 0;
+      minutes = first;
+      seconds = second;
+    }
+
+    if (!expect(i, '.')) {
+      throw invalidTime();
+    }
+    i++;
+    int millis = 0;
+    int scale = 100;
+    while (i < lineLength && isDigit(line[i]) && scale > 0) {
+      millis += (line[i++] - '0') * scale;
+      scale /= 10;
+    }
+    if (scale == 100 || minutes > 59 || seconds > 59) {
+      throw invalidTime();
+    }
+    this.timeEnd = i;
+    return ((hours * 60 + minutes) * 60 + seconds) * 1000 + millis;
+  }
+
+  /**
+   * Appends the current line to the text followed by a space and a new line, like {@link
+   * #appendTextLine()} does, keeping only the tags that can be displayed.
+   */
+  private void appendCueTextLine() {
+    ensureTextCapacity(textLength + lineLength + 2);
+    int i = 0;
+    while (i < lineLength) {
+      char c = line[i];
+      int close = c == '<' ? indexOf('>', i + 1) : -1;
+      if (close < 0) {
+        text[textLength++] = c;
+        i++;
+        continue;
+      }
+      appendTag(i + 1, close);
+      i = close + 1;
+    }
+    text[textLength++] = ' ';
+    text[textLength++] = '\n';
+  }
+
+  /** Appends the tag between the positions if it is a bold, italic or underline tag */
+  private void appendTag(int from, int to) {
+    boolean closing = from < to && line[from] == '/';
+    int nameStart = closing ? from + 1 : from;
+    // classes (i.e. <b.loud>) and annotations are dropped
+    int nameEnd = nameStart;
+    while (nameEnd < to && line[nameEnd] != '.' && line[nameEnd] > ' ') {
+      nameEnd++;
+    }
+    if (nameEnd - nameStart != 1) {
+      return;
+    }
+    char name = line[nameStart];
+    if (name == 'b' || name == 'i' || name == 'u') {
+      text[textLength++] = '<';
+      if (closing) {
+        text[textLength++] = '/';
+      }
+      text[textLength++] = name;
+      text[textLength++] = '>';
+    }
+  }
+
+  private int indexOf(char c, int from) {
+    for (int i = from; i < lineLength; i++) {
+      if (line[i] == c) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
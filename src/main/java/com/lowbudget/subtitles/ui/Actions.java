@@ -26,14 +26,14 @@ package com.lowbudget.subtitles.ui;
 
 import com.lowbudget.subtitles.model.Player;
 import com.lowbudget.subtitles.model.Settings;
-import com.lowbudget.subtitles.model.SubtitleList;
-import com.lowbudget.subtitles.model.SubtitleLoader;
+import com.lowbudget.subtitles.model.SubtitleFormats;
 import java.awt.event.ActionEvent;
 import java.io.File;
 import java.util.HashSet;
 import java.util.Set;
 import javax.swing.*;
 import javax.swing.filechooser.FileFilter;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
@@ -49,11 +49,18 @@ public class Actions {
 
   private final Action settingsAction;
 
+  private final Action cancelLoadAction;
+
+  /** the worker loading a subtitles file or null if no file is being loaded */
+  @Getter(AccessLevel.NONE)
+  private SubtitleLoadWorker loadWorker;
+
   public Actions(final Player player) {
     this.playAction = createPlayAction(player);
     this.stopAction = createStopAction(player);
     this.loadAction = createLoadAction(player);
     this.settingsAction = createSettingsAction(player);
+    this.cancelLoadAction = createCancelLoadAction();
 
     player.addListener(new ModelListener());
     update(player);
@@ -62,6 +69,7 @@ public class Actions {
   public void update(Player player) {
     this.playAction.setEnabled(!player.isPlaying() && player.hasSubtitles());
     this.stopAction.setEnabled(player.isPlaying());
+    this.cancelLoadAction.setEnabled(player.isLoading());
   }
 
   private class ModelListener implements Player.Listener {
@@ -72,22 +80,22 @@ public class Actions {
     }
 
     @Override
-    public void onClockTick(Player player) {
+    public void onStarted(Player player) {
       update(player);
     }
 
     @Override
-    public void onStarted(Player player) {
+    public void onStopped(Player player) {
       update(player);
     }
 
     @Override
-    public void onStopped(Player player) {
+    public void onSettingsChanged(Player player) {
       update(player);
     }
 
     @Override
-    public void onSettingsChanged(Player player) {
+    public void onLoadProgress(Player player) {
       update(player);
     }
   }
@@ -112,7 +120,7 @@ public class Actions {
     };
   }
 
-  private static Action createLoadAction(Player player) {
+  private Action createLoadAction(Player player) {
     return new AbstractAction("Load...") {
 
       @Override
@@ -129,9 +137,7 @@ public class Actions {
           File file = fc.getSelectedFile();
           if (file != null && file.exists() && file.isFile()) {
             log.info("Loading subtitles from file: {}", file);
-            SubtitleList subtitles = SubtitleLoader.load(file);
-            player.loadSubtitles(subtitles);
-            player.setLastFolder(file.getParentFile().getAbsolutePath());
+            startLoading(player, file);
           } else {
             log.error("Invalid file specified: {}", file);
           }
@@ -140,6 +146,27 @@ public class Actions {
     };
   }
 
+  private void startLoading(Player player, File file) {
+    // only one file can be loaded at a time
+    if (loadWorker != null) {
+      loadWorker.cancel(true);
+    }
+    loadWorker = new SubtitleLoadWorker(player, file);
+    loadWorker.start();
+  }
+
+  private Action createCancelLoadAction() {
+    return new AbstractAction("Cancel") {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        if (loadWorker != null) {
+          loadWorker.cancelByUser();
+          loadWorker = null;
+        }
+      }
+    };
+  }
+
   private static Action createSettingsAction(Player player) {
     return new AbstractAction("Settings...") {
 
@@ -160,19 +187,19 @@ public class Actions {
 
   private static final FileFilter SUBTITLE_FILTER =
       new FileFilter() {
+        private final Set<String> allowed = new HashSet<>(SubtitleFormats.getExtensions());
+
         @Override
         public boolean accept(File f) {
           if (f.isDirectory()) {
             return true;
           }
-          Set<String> allowed = new HashSet<>();
-          allowed.add("srt");
           return allowed.contains(UIUtils.getExtension(f));
         }
 
         @Override
         public String getDescription() {
-          return "SRT files";
+          return "Subtitle files (*." + String.join(", *.", SubtitleFormats.getExtensions()) + ")";
         }
       };
 }
@@ -0,0 +1,518 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.ui;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.LineMetrics;
+import java.awt.font.TextAttribute;
+import java.awt.font.TextLayout;
+import java.text.AttributedString;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The lines of a subtitle text laid out with the font and the colours they are drawn with. Only
+ * java2d is used, so unlike a label a text can be laid out and drawn by any thread.
+ *
+ * <p>Texts that start with {@code <html>} support the markup the parsers produce: {@code <br>}
+ * breaks lines, {@code <b>}, {@code <i>}, {@code <u>} and {@code <s>} style the text, {@code <font
+ * color="#rrggbb">} colours it and {@code <div align="left|right">} aligns its lines, which are
+ * centered otherwise. All lines are displayed in a single block, so {@code <div
+ * valign="top|middle">} moves its lines above the others, in the order top, middle and bottom
+ * which is the default. Other tags are ignored and runs of white space are displayed as a single
+ * space like in html. Any other text is displayed as is in a single line.
+ */
+/*package*/ final class CueLayout {
+
+  /** antialiased with fractional metrics, which is how the images are drawn */
+  private static final FontRenderContext FONT_RENDER_CONTEXT =
+      new FontRenderContext(null, true, true);
+
+  private static final Pattern ATTRIBUTE =
+      Pattern.compile("([\\w-]+)\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)'|([^\\s\"'>]+))");
+
+  private final List<Line> lines;
+
+  private final int width;
+
+  private final int height;
+
+  private CueLayout(List<Line> lines) {
+    // a stable sort, so the lines of each vertical position keep their order
+    lines.sort(Comparator.comparingInt(line -> line.vertical));
+    this.lines = lines;
+    float maxAdvance = 0;
+    float totalHeight = 0;
+    for (Line line : lines) {
+      maxAdvance = Math.max(maxAdvance, line.advance);
+      totalHeight += line.ascent + line.descent + line.leading;
+    }
+    this.width = Math.max(1, (int) Math.ceil(maxAdvance));
+    this.height = Math.max(1, (int) Math.ceil(totalHeight));
+  }
+
+  /** Lays out the text with the font and the colour of any text that is not coloured by markup */
+  static CueLayout layout(String text, Font font, Color foreground) {
+    Builder builder = new Builder(font, foreground);
+    if (text.regionMatches(true, 0, "<html>", 0, "<html>".length())) {
+      builder.parse(text);
+    } else {
+      builder.appendRaw(text.replace('\n', ' ').trim());
+    }
+    return new CueLayout(builder.finish());
+  }
+
+  int getWidth() {
+    return width;
+  }
+
+  int getHeight() {
+    return height;
+  }
+
+  /** Draws the lines with their top left corner at the origin */
+  void draw(Graphics2D g) {
+    g.setRenderingHint(
+        RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+    g.setRenderingHint(
+        RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+    float y = 0;
+    for (Line line : lines) {
+      y += line.ascent;
+      if (line.layout != null) {
+        line.layout.draw(g, line.alignment * (width - line.advance) / 2, y);
+      }
+      y += line.descent + line.leading;
+    }
+  }
+
+  private static final class Line {
+    /** null for an empty line */
+    private final TextLayout layout;
+
+    /** 0 for left, 1 for centered and 2 for right aligned, i.e. the halves of the free space */
+    private final int alignment;
+
+    /** 0 for top, 1 for middle and 2 for bottom */
+    private final int vertical;
+
+    private final float advance;
+
+    private final float ascent;
+
+    private final float descent;
+
+    private final float leading;
+
+    private Line(TextLayout layout, int alignment, int vertical, LineMetrics empty) {
+      this.layout = layout;
+      this.alignment = alignment;
+      this.vertical = vertical;
+      this.advance = layout == null ? 0 : layout.getAdvance();
+      // the lines are at least as high as the font so lines with and without fallback fonts match
+      this.ascent = Math.max(empty.getAscent(), layout == null ? 0 : layout.getAscent());
+      this.descent = Math.max(empty.getDescent(), layout == null ? 0 : layout.getDescent());
+      this.leading = Math.max(empty.getLeading(), layout == null ? 0 : layout.getLeading());
+    }
+  }
+
+  /** Parses the markup into lines of styled text */
+  private static final class Builder {
+    private final Font font;
+
+    private final LineMetrics metrics;
+
+    private final List<Line> lines = new ArrayList<>();
+
+    private final StringBuilder line = new StringBuilder();
+
+    /** the style of each character of the line, in the same order */
+    private final List<Style> styles = new ArrayList<>();
+
+    private final Deque<Color> colors = new ArrayDeque<>();
+
+    private final Deque<Integer> alignments = new ArrayDeque<>();
+
+    private final Deque<Integer> verticals = new ArrayDeque<>();
+
+    /**
+     * set when a block ended the line, so a line break right after it does not add an empty line
+     * between the subtitles
+     */
+    private boolean blockEnded;
+
+    private int bold;
+
+    private int italic;
+
+    private int underline;
+
+    private int strikethrough;
+
+    /**
+     * the style of the white space that was skipped, since a single space in this style is appended
+     * before the next character, or null if there is none
+     */
+    private Style space;
+
+    private Builder(Font font, Color foreground) {
+      this.font = font;
+      this.metrics = font.getLineMetrics("", FONT_RENDER_CONTEXT);
+      colors.push(foreground);
+      alignments.push(1);
+      verticals.push(2);
+    }
+
+    private void parse(String text) {
+      int i = 0;
+      int length = text.length();
+      while (i < length) {
+        char c = text.charAt(i);
+        if (c == '<' && isTagStart(text, i + 1)) {
+          int end = text.indexOf('>', i);
+          if (end < 0) {
+            break;
+          }
+          tag(text.substring(i + 1, end));
+          i = end + 1;
+        } else if (c == '&') {
+          i = entity(text, i);
+        } else {
+          if (Character.isWhitespace(c)) {
+            if (line.length() > 0 && space == null) {
+              space = style();
+            }
+          } else {
+            append(c);
+          }
+          i++;
+        }
+      }
+    }
+
+    private static boolean isTagStart(String text, int index) {
+      if (index >= text.length()) {
+        return false;
+      }
+      char c = text.charAt(index);
+      return Character.isLetter(c) || c == '/' || c == '!';
+    }
+
+    private void tag(String tag) {
+      boolean closing = tag.startsWith("/");
+      int start = closing ? 1 : 0;
+      int end = start;
+      while (end < tag.length() && Character.isLetterOrDigit(tag.charAt(end))) {
+        end++;
+      }
+      String name = tag.substring(start, end).toLowerCase(Locale.ROOT);
+      int delta = closing ? -1 : 1;
+      switch (name) {
+        case "br":
+          if (line.length() > 0 || !blockEnded) {
+            endLine();
+          }
+          blockEnded = false;
+          break;
+        case "div":
+        case "p":
+          if (line.length() > 0) {
+            endLine();
+          }
+          if (!closing) {
+            alignments.push(alignment(attribute(tag, "align"), alignments.peek()));
+            verticals.push(vertical(attribute(tag, "valign"), verticals.peek()));
+          } else if (alignments.size() > 1) {
+            alignments.pop();
+            verticals.pop();
+            blockEnded = true;
+          }
+          break;
+        case "b":
+        case "strong":
+          bold = Math.max(0, bold + delta);
+          break;
+        case "i":
+        case "em":
+          italic = Math.max(0, italic + delta);
+          break;
+        case "u":
+          underline = Math.max(0, underline + delta);
+          break;
+        case "s":
+        case "strike":
+        case "del":
+          strikethrough = Math.max(0, strikethrough + delta);
+          break;
+        case "font":
+          if (!closing) {
+            colors.push(color(attribute(tag, "color"), colors.peek()));
+          } else if (colors.size() > 1) {
+            colors.pop();
+          }
+          break;
+        default:
+          // html, comments and anything else that does not affect the text
+          break;
+      }
+    }
+
+    private static String attribute(String tag, String name) {
+      Matcher matcher = ATTRIBUTE.matcher(tag);
+      while (matcher.find()) {
+        if (matcher.group(1).equalsIgnoreCase(name)) {
+          for (int group = 2; group <= 4; group++) {
+            if (matcher.group(group) != null) {
+              return matcher.group(group);
+            }
+          }
+        }
+      }
+      return null;
+    }
+
+    private static int alignment(String align, int current) {
+      if (align == null) {
+        return current;
+      }
+      switch (align.toLowerCase(Locale.ROOT)) {
+        case "left":
+          return 0;
+        case "right":
+          return 2;
+        default:
+          return 1;
+      }
+    }
+
+    private static int vertical(String valign, int current) {
+      if (valign == null) {
+        return current;
+      }
+      switch (valign.toLowerCase(Locale.ROOT)) {
+        case "top":
+          return 0;
+        case "middle":
+          return 1;
+        default:
+          return 2;
+      }
+    }
+
+    private static Color color(String value, Color current) {
+      if (value == null || !value.startsWith("#")) {
+        return current;
+      }
+      try {
+        return new Color(Integer.parseInt(value.substring(1), 16));
+      } catch (NumberFormatException e) {
+        return current;
+      }
+    }
+
+    /** Appends the character of the entity at the index and returns the index after the entity */
+    private int entity(String text, int index) {
+      int end = text.indexOf(';', index);
+      if (end < 0 || end - index > 10) {
+        append('&');
+        return index + 1;
+      }
+      String name = text.substring(index + 1, end);
+      int c;
+      switch (name) {
+        case "lt":
+          c = '<';
+          break;
+        case "gt":
+          c = '>';
+          break;
+        case "amp":
+          c = '&';
+          break;
+        case "quot":
+          c = '"';
+          break;
+        case "apos":
+          c = '\'';
+          break;
+        case "nbsp":
+          c = '\u00a0';
+          break;
+        default:
+          c = codePoint(name);
+          break;
+      }
+      if (c < 0) {
+        append('&');
+        return index + 1;
+      }
+      if (Character.isBmpCodePoint(c)) {
+        append((char) c);
+      } else {
+        append(Character.highSurrogate(c));
+        append(Character.lowSurrogate(c));
+      }
+      return end + 1;
+    }
+
+    /** Returns the code point of a numeric entity or -1 if it is not one */
+    private static int codePoint(String name) {
+      if (name.length() < 2 || name.charAt(0) != '#') {
+        return -1;
+      }
+      try {
+        boolean hex = name.charAt(1) == 'x' || name.charAt(1) == 'X';
+        int c = hex ? Integer.parseInt(name.substring(2), 16) : Integer.parseInt(name.substring(1));
+        return Character.isValidCodePoint(c) ? c : -1;
+      } catch (NumberFormatException e) {
+        return -1;
+      }
+    }
+
+    private void appendRaw(String text) {
+      for (int i = 0; i < text.length(); i++) {
+        append(text.charAt(i));
+      }
+    }
+
+    private Style style() {
+      return new Style(colors.peek(), bold > 0, italic > 0, underline > 0, strikethrough > 0);
+    }
+
+    private void append(char c) {
+      blockEnded = false;
+      if (space != null) {
+        line.append(' ');
+        styles.add(space);
+        space = null;
+      }
+      line.append(c);
+      styles.add(style());
+    }
+
+    private void endLine() {
+      space = null;
+      TextLayout layout = null;
+      if (line.length() > 0) {
+        AttributedString text = new AttributedString(line.toString());
+        int start = 0;
+        for (int i = 1; i <= styles.size(); i++) {
+          if (i == styles.size() || !styles.get(i).equals(styles.get(start))) {
+            styles.get(start).apply(text, font, start, i);
+            start = i;
+          }
+        }
+        layout = new TextLayout(text.getIterator(), FONT_RENDER_CONTEXT);
+      }
+      lines.add(new Line(layout, alignments.peek(), verticals.peek(), metrics));
+      line.setLength(0);
+      styles.clear();
+    }
+
+    private List<Line> finish() {
+      // like a trailing line break in html, an empty last line is not displayed
+      if (line.length() > 0 || lines.isEmpty()) {
+        endLine();
+      }
+      return lines;
+    }
+  }
+
+  private static final class Style {
+    private final Color color;
+
+    private final boolean bold;
+
+    private final boolean italic;
+
+    private final boolean underline;
+
+    private final boolean strikethrough;
+
+    private Style(
+        Color color, boolean bold, boolean italic, boolean underline, boolean strikethrough) {
+      this.color = color;
+      this.bold = bold;
+      this.italic = italic;
+      this.underline = underline;
+      this.strikethrough = strikethrough;
+    }
+
+    /**
+     * Applies the style to a range of the text. The font is given by its attributes instead of
+     * {@link TextAttribute#FONT}, so characters it does not have are displayed with other fonts.
+     */
+    private void apply(AttributedString text, Font font, int start, int end) {
+      text.addAttribute(TextAttribute.FAMILY, font.getFamily(), start, end);
+      text.addAttribute(TextAttribute.SIZE, font.getSize2D(), start, end);
+      text.addAttribute(
+          TextAttribute.WEIGHT,
+          bold || font.isBold() ? TextAttribute.WEIGHT_BOLD : TextAttribute.WEIGHT_REGULAR,
+          start,
+          end);
+      text.addAttribute(
+          TextAttribute.POSTURE,
+          italic || font.isItalic() ? TextAttribute.POSTURE_OBLIQUE : TextAttribute.POSTURE_REGULAR,
+          start,
+          end);
+      text.addAttribute(TextAttribute.FOREGROUND, color, start, end);
+      if (underline) {
+        text.addAttribute(TextAttribute.UNDERLINE, TextAttribute.UNDERLINE_ON, start, end);
+      }
+      if (strikethrough) {
+        text.addAttribute(TextAttribute.STRIKETHROUGH, TextAttribute.STRIKETHROUGH_ON, start, end);
+      }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Style)) {
+        return false;
+      }
+      Style other = (Style) o;
+      return color.equals(other.color)
+          && bold == other.bold
+          && italic == other.italic
+          && underline == other.underline
+          && strikethrough == other.strikethrough;
+    }
+
+    @Override
+    public int hashCode() {
+      return color.hashCode() * 31
+          + (bold ? 8 : 0)
+          + (italic ? 4 : 0)
+          + (underline ? 2 : 0)
+          + (strikethrough ? 1 : 0);
+    }
+  }
+}
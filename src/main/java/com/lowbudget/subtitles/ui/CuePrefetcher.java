@@ -0,0 +1,78 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.ui;
+
+import com.lowbudget.subtitles.model.Subtitle;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Renders the subtitles that will be displayed next in a background thread, so they are already in
+ * the cache of the {@link CueRenderer} when they start.
+ *
+ * <p>Every call to {@link #prefetch(Iterator)} replaces the subtitles being rendered, i.e. after a
+ * seek the subtitles ahead of the old position are not rendered any more.
+ */
+@Slf4j
+/*package*/ class CuePrefetcher {
+
+  private final CueRenderer renderer;
+
+  private final ExecutorService executor =
+      Executors.newSingleThreadExecutor(
+          r -> {
+            Thread thread = new Thread(r, "cue-prefetcher");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+          });
+
+  /** incremented for every request, a task stops as soon as it is not the latest one */
+  private final AtomicInteger generation = new AtomicInteger();
+
+  CuePrefetcher(CueRenderer renderer) {
+    this.renderer = renderer;
+  }
+
+  /** Renders the subtitles of the iterator, which must be usable by any thread */
+  void prefetch(Iterator<Subtitle> upcoming) {
+    int current = generation.incrementAndGet();
+    executor.execute(
+        () -> {
+          while (generation.get() == current && upcoming.hasNext()) {
+            try {
+              renderer.prerender(renderer.getText(Collections.singletonList(upcoming.next())));
+            } catch (RuntimeException e) {
+              // the subtitle will be rendered when it is displayed
+              log.debug("Could not render subtitle ahead of time", e);
+            }
+          }
+        });
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.ui;
+
+import com.lowbudget.subtitles.model.Subtitle;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders the text of subtitles into images. The text is laid out by a {@link CueLayout}, which
+ * only uses java2d, so the images can be rendered by any thread.
+ *
+ * <p>The images of the most recently used texts are kept, so a text is laid out and rasterized only
+ * the first time it is displayed. The images depend on the font and the background, so changing any
+ * of them discards all images.
+ *
+ * <p>Texts can be rendered ahead of time by other threads, which only share the cache. Swing
+ * components are never used for this, since they may only be used by the event dispatch thread.
+ */
+/*package*/ class CueRenderer {
+
+  /** the images by their text in access order, so the eldest is the least recently used */
+  private final Map<String, BufferedImage> images;
+
+  /** the texts of single subtitles, which the subtitle lists keep using the same objects for */
+  private final Map<Subtitle, String> texts;
+
+  private volatile Font font;
+
+  private volatile Color background;
+
+  /** incremented when the settings change, so images rendered with the old ones are dropped */
+  private volatile int settingsVersion;
+
+  CueRenderer(int capacity) {
+    this.images =
+        new LinkedHashMap<String, BufferedImage>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, BufferedImage> eldest) {
+            return size() > capacity;
+          }
+        };
+    this.texts =
+        new LinkedHashMap<Subtitle, String>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<Subtitle, String> eldest) {
+            return size() > capacity;
+          }
+        };
+  }
+
+  /** Returns the text that displays the subtitles */
+  static String toText(List<Subtitle> subtitles) {
+    if (subtitles.isEmpty()) {
+      // to always keep the label's height to fit at least one line
+      return "\n";
+    }
+    // overlapping subtitles are displayed one below the other
+    StringBuilder html = new StringBuilder("<html>");
+    for (int i = 0; i < subtitles.size(); i++) {
+      if (i > 0) {
+        html.append("<br/>");
+      }
+      html.append(subtitles.get(i).getText().replace("\n", "<br/>"));
+    }
+    return html.append("</html>").toString();
+  }
+
+  /**
+   * Returns the text that displays the subtitles like {@link #toText(List)}. The text of a single
+   * subtitle, which is what is usually displayed, is kept so it is built only once.
+   */
+  String getText(List<Subtitle> subtitles) {
+    if (subtitles.size() != 1) {
+      return toText(subtitles);
+    }
+    Subtitle subtitle = subtitles.get(0);
+    String text = getCachedText(subtitle);
+    if (text == null) {
+      text = toText(subtitles);
+      putCachedText(subtitle, text);
+    }
+    return text;
+  }
+
+  private synchronized String getCachedText(Subtitle subtitle) {
+    return texts.get(subtitle);
+  }
+
+  private synchronized void putCachedText(Subtitle subtitle, String text) {
+    texts.put(subtitle, text);
+  }
+
+  synchronized void setFont(Font font) {
+    this.font = font;
+    settingsVersion++;
+    images.clear();
+  }
+
+  synchronized void setBackground(Color background) {
+    this.background = background;
+    settingsVersion++;
+    images.clear();
+  }
+
+  /** Returns the image of the text, rendering it if it is not cached */
+  BufferedImage render(String text) {
+    BufferedImage image = getImage(text);
+    if (image == null) {
+      int version = settingsVersion;
+      image = rasterize(text);
+      putImage(text, image, version);
+    }
+    return image;
+  }
+
+  /** Renders the text into the cache if it is not already there */
+  void prerender(String text) {
+    if (getImage(text) == null) {
+      int version = settingsVersion;
+      putImage(text, rasterize(text), version);
+    }
+  }
+
+  private synchronized BufferedImage getImage(String text) {
+    return images.get(text);
+  }
+
+  private synchronized void putImage(String text, BufferedImage image, int version) {
+    if (version == settingsVersion) {
+      images.put(text, image);
+    }
+  }
+
+  private BufferedImage rasterize(String text) {
+    Color imageBackground = background;
+    CueLayout layout = CueLayout.layout(text, font, Color.white);
+    int width = layout.getWidth();
+    int height = layout.getHeight();
+
+    // premultiplied alpha is what the translucent window is composed with, so drawing is a copy
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+    Graphics2D g = image.createGraphics();
+    try {
+      g.setColor(imageBackground);
+      g.fillRect(0, 0, width, height);
+      layout.draw(g);
+    } finally {
+      g.dispose();
+    }
+    return image;
+  }
+}
@@ -27,27 +27,40 @@ package com.lowbudget.subtitles.ui;
 import static com.lowbudget.subtitles.ui.UIUtils.format;
 
 import com.lowbudget.subtitles.model.Player;
+import com.lowbudget.subtitles.ui.timer.SwingClockTimerFactory;
 
 import javax.swing.*;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
-import lombok.RequiredArgsConstructor;
 
 public class DurationPanel extends JPanel {
 
+  /**
+   * the changes of the slider are applied at most once in this interval, so dragging it does not
+   * seek on every pixel
+   */
+  private static final int SEEK_INTERVAL = SwingClockTimerFactory.DEFAULT_TIMER_INTERVAL;
+
   private final JSlider slider;
 
   private final JLabel durationLabel;
 
-  private boolean programmaticChange = true;
+  /** set while the slider is changed by the player, so its change events are not seeks */
+  private boolean programmaticChange;
+
+  /** the seconds of the displayed duration, so it is only formatted when they change */
+  private int displayedSeconds = -1;
 
   private final JButton playButton;
   private final JButton stopButton;
 
+  private final JProgressBar loadProgressBar;
+  private final JButton cancelLoadButton;
+
   public DurationPanel(Player player, Actions actions) {
     setLayout(new BoxLayout(this, BoxLayout.LINE_AXIS));
 
-    // this component has 3 components laid out in a row
+    // this component has 4 groups of components laid out in a row
 
     // 1. a play and stop button from which only one is visible at a time
     this.playButton = addButton(actions.getPlayAction());
@@ -66,7 +79,25 @@ public class DurationPanel extends JPanel {
     this.durationLabel = new JLabel("00:00:00");
     add(durationLabel);
 
-    player.addListener(new ModelListener());
+    // 4. the progress of loading a file and a button to cancel it, visible only while loading
+    this.loadProgressBar = new JProgressBar(0, 100);
+    loadProgressBar.setStringPainted(true);
+    loadProgressBar.setVisible(false);
+    add(loadProgressBar);
+    this.cancelLoadButton = addButton(actions.getCancelLoadAction());
+    cancelLoadButton.setVisible(false);
+
+    ModelListener modelListener = new ModelListener();
+    player.addListener(modelListener);
+    player.addPositionListener(modelListener);
+  }
+
+  private void setDurationText(int elapsed) {
+    int seconds = elapsed / 1000;
+    if (seconds != displayedSeconds) {
+      displayedSeconds = seconds;
+      durationLabel.setText(format(elapsed));
+    }
   }
 
   private JButton addButton(Action action) {
@@ -76,47 +107,104 @@ public class DurationPanel extends JPanel {
     return aButton;
   }
 
-  @RequiredArgsConstructor
+  /**
+   * Seeks when the user changes the slider. While the knob is dragged the subtitles at its position
+   * are only previewed and the seek is done once, when it is released. Both are coalesced to the
+   * latest value once every {@link #SEEK_INTERVAL}.
+   */
   private class SliderChangeListener implements ChangeListener {
     private final Player player;
 
+    private final Timer seekTimer;
+
+    /** the latest value set by the user, applied when the timer fires */
+    private int pendingValue;
+
+    /** whether the knob was released, so the player moves to the pending value */
+    private boolean pendingSeek;
+
+    SliderChangeListener(Player player) {
+      this.player = player;
+      this.seekTimer = new Timer(SEEK_INTERVAL, e -> applyPendingValue());
+      seekTimer.setRepeats(false);
+    }
+
     @Override
     public void stateChanged(ChangeEvent e) {
-      // if the flag is set, the value was changed programmatically.
-      // reset it on every tick.
+      // if the flag is set, the value was changed programmatically
       if (programmaticChange) {
-        programmaticChange = false;
         return;
       }
       // the flag is not set - this means it is a user generated event
       if (player.hasSubtitles()) {
-        player.seek(slider.getValue());
+        // keep the value now, a tick could move the slider before the timer fires
+        pendingValue = slider.getValue();
+        pendingSeek = !slider.getValueIsAdjusting();
+        if (!seekTimer.isRunning()) {
+          seekTimer.start();
+        }
+      }
+    }
+
+    private void applyPendingValue() {
+      if (pendingSeek) {
+        player.seek(pendingValue);
+      } else {
+        player.preview(pendingValue);
+        setDurationText(pendingValue);
       }
     }
   }
 
-  private class ModelListener extends Player.Adapter {
+  private class ModelListener extends Player.Adapter implements Player.PositionListener {
 
     @Override
     public void onSubtitlesLoaded(Player player) {
-      slider.setValue(0);
-      slider.setMaximum(player.getTotalDuration());
+      // when a file is loaded progressively this is called again with more subtitles, so keep the
+      // current position. The maximum is set first so the value is not limited by the old one
+      programmaticChange = true;
+      try {
+        if (slider.getMaximum() != player.getTotalDuration()) {
+          slider.setMaximum(player.getTotalDuration());
+        }
+        if (slider.getValue() != player.getElapsedDuration()) {
+          slider.setValue(player.getElapsedDuration());
+        }
+      } finally {
+        programmaticChange = false;
+      }
     }
 
     @Override
-    public void onClockTick(Player player) {
+    public void onLoadProgress(Player player) {
+      boolean loading = player.isLoading();
+      loadProgressBar.setVisible(loading);
+      cancelLoadButton.setVisible(loading);
+      if (loading) {
+        loadProgressBar.setValue(player.getLoadProgress());
+      }
+    }
+
+    @Override
+    public void onPositionChanged(Player player) {
+      // the knob follows the user while it is dragged
+      if (slider.getValueIsAdjusting()) {
+        return;
+      }
+
       // ignore all change events for the slider since they are caused by setting the value
       // programmatically
       // we only want to respond when user is changing the value i.e. in a seek operation
-      if (!player.isSeekOperation()) {
-        programmaticChange = true;
+      programmaticChange = !player.isSeekOperation();
+      try {
+        // this will cause the slider's change listener to fire.
+        // if this is not user generated we want to ignore the change event
+        slider.setValue(player.getElapsedDuration());
+      } finally {
+        programmaticChange = false;
       }
 
-      // this will cause the slider's change listener to fire.
-      // if this is not user generated we want to ignore the change event
-      slider.setValue(player.getElapsedDuration());
-
-      durationLabel.setText(format(player.getElapsedDuration()));
+      setDurationText(player.getElapsedDuration());
     }
 
     @Override
@@ -26,8 +26,11 @@ package com.lowbudget.subtitles.ui;
 
 import com.lowbudget.subtitles.model.Player;
 import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.*;
@@ -35,7 +38,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jnativehook.GlobalScreen;
 import org.jnativehook.NativeHookException;
-import org.jnativehook.dispatcher.SwingDispatchService;
+import org.jnativehook.dispatcher.DefaultDispatchService;
 import org.jnativehook.mouse.NativeMouseEvent;
 import org.jnativehook.mouse.NativeMouseInputListener;
 
@@ -48,6 +51,12 @@ public class MainWindow extends JFrame {
 
   private final Player player; // NOSONAR
 
+  /**
+   * The window bounds in screen coordinates, read by the native mouse listener outside the EDT
+   * and replaced whenever the window is moved or resized.
+   */
+  private volatile Rectangle screenBounds = new Rectangle();
+
   public MainWindow(Player player, Actions actions) {
 
     this.translucentPane = new TranslucentPanel(player, actions);
@@ -69,6 +78,25 @@ public class MainWindow extends JFrame {
     // register our window with global native mouse listener
     addWindowListener(new NativeHookRegisterWindowListener(this));
 
+    // keep the bounds the native mouse listener tests against up to date
+    addComponentListener(
+        new ComponentAdapter() {
+          @Override
+          public void componentResized(ComponentEvent e) {
+            updateScreenBounds();
+          }
+
+          @Override
+          public void componentMoved(ComponentEvent e) {
+            updateScreenBounds();
+          }
+
+          @Override
+          public void componentShown(ComponentEvent e) {
+            updateScreenBounds();
+          }
+        });
+
     turnOnDecoration();
   }
 
@@ -100,6 +128,12 @@ public class MainWindow extends JFrame {
     windowShown = true;
   }
 
+  private void updateScreenBounds() {
+    if (isShowing()) {
+      screenBounds = new Rectangle(getLocationOnScreen(), getSize());
+    }
+  }
+
   private static JMenuBar createMenuBar(Actions actions) {
     JMenuBar menuBar = new JMenuBar();
 
@@ -135,8 +169,9 @@ public class MainWindow extends JFrame {
       logger.setUseParentHandlers(false);
 
       try {
-        // Set the event dispatcher to a swing safe executor service.
-        GlobalScreen.setEventDispatcher(new SwingDispatchService());
+        // Deliver the events on the hook's own dispatch thread, the listener filters them there
+        // and only posts the changes of the decoration to the EDT.
+        GlobalScreen.setEventDispatcher(new DefaultDispatchService());
 
         log.info("Registering native mouse listener hooks");
         GlobalScreen.registerNativeHook();
@@ -145,6 +180,7 @@ public class MainWindow extends JFrame {
         System.exit(1);
       }
 
+      window.updateScreenBounds();
       NativeHookGlobalMouseListener mouseListener = new NativeHookGlobalMouseListener(window);
       GlobalScreen.addNativeMouseListener(mouseListener);
       GlobalScreen.addNativeMouseMotionListener(mouseListener);
@@ -172,6 +208,10 @@ public class MainWindow extends JFrame {
    * <li>to keep track of the state of the left mouse button. When the button is pressed we do not
    *     hide the decoration if the mouse is moving outside the window to allow the user to graceful
    *     resize it.
+   *
+   * <p>The events are received on the native hook dispatch thread for every mouse movement on the
+   * desktop. The listener tests them against the cached window bounds on that thread and posts to
+   * the EDT only when the decoration should change, with at most one update pending at any time.
    */
   @RequiredArgsConstructor
   private static class NativeHookGlobalMouseListener implements NativeMouseInputListener {
@@ -182,15 +222,23 @@ public class MainWindow extends JFrame {
     /** Keeps track of the left mouse button state */
     private boolean leftButtonPressed = false;
 
+    /** the decoration state last requested from the EDT, the window starts decorated */
+    private boolean decorated = true;
+
+    /** the decoration state the pending EDT update applies */
+    private volatile boolean requested = true;
+
+    /** set while an update is posted to the EDT and has not run yet */
+    private final AtomicBoolean updatePending = new AtomicBoolean();
+
+    private final Runnable updateDecoration = this::updateDecoration;
+
     public void nativeMouseMoved(NativeMouseEvent e) {
       // System.out.println("Mouse Moved: " + e.getX() + ", " + e.getY()); //NOSONAR
 
-      Point p = e.getPoint();
-      SwingUtilities.convertPointFromScreen(p, window);
-
-      if (window.contains(p)) {
+      if (window.screenBounds.contains(e.getX(), e.getY())) {
         // mouse is moving inside window
-        window.turnOnDecoration();
+        setDecorated(true);
       } else {
         // outside window - turn off decoration again if the left button is not pressed
 
@@ -198,11 +246,33 @@ public class MainWindow extends JFrame {
         // we need this otherwise as the user tries to resize and gets out of the original
         // bounds the decoration will be turned off
         if (!this.leftButtonPressed) {
-          window.turnOffDecoration();
+          setDecorated(false);
         }
       }
     }
 
+    private void setDecorated(boolean decorated) {
+      // most moves stay on the same side of the window edge and need nothing
+      if (this.decorated == decorated) {
+        return;
+      }
+      this.decorated = decorated;
+      this.requested = decorated;
+      // a burst of edge crossings is applied by a single update with the latest state
+      if (updatePending.compareAndSet(false, true)) {
+        SwingUtilities.invokeLater(updateDecoration);
+      }
+    }
+
+    private void updateDecoration() {
+      updatePending.set(false);
+      if (requested) {
+        window.turnOnDecoration();
+      } else {
+        window.turnOffDecoration();
+      }
+    }
+
     public void nativeMouseDragged(NativeMouseEvent e) {
       // System.out.println("Mouse Dragged: " + e.getX() + ", " + e.getY()); //NOSONAR
     }
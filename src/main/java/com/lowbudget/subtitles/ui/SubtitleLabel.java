@@ -27,15 +27,47 @@ package com.lowbudget.subtitles.ui;
 import static com.lowbudget.subtitles.ui.UIConstants.BLACK_SEMI_TRANSPARENT;
 import static com.lowbudget.subtitles.ui.UIConstants.fromColor;
 
+import com.lowbudget.subtitles.metrics.FlightEvents;
+import com.lowbudget.subtitles.metrics.PlaybackMetrics;
 import com.lowbudget.subtitles.model.Player;
 import com.lowbudget.subtitles.model.Settings;
 import com.lowbudget.subtitles.model.Subtitle;
 import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.List;
 import javax.swing.*;
 
 // TODO: wrap text/handle change of lines. HTML is one option but occupies all the panel space
+/**
+ * Displays the active subtitles. The text is rendered into images by a {@link CueRenderer} which
+ * keeps the most recently used ones, so painting the label during playback only draws an image.
+ * The next subtitles are rendered ahead of time by a {@link CuePrefetcher}.
+ */
 public class SubtitleLabel extends JLabel {
 
+  /** the number of rendered texts kept */
+  private static final int CACHE_SIZE = 64;
+
+  /** the number of subtitles after the current position rendered ahead of time */
+  private static final int LOOKAHEAD = 8;
+
+  private final CueRenderer renderer = new CueRenderer(CACHE_SIZE);
+
+  private final CuePrefetcher prefetcher = new CuePrefetcher(renderer);
+
+  /** the text of the active subtitles */
+  private String text;
+
+  /** the rendered image of the text */
+  private BufferedImage image;
+
+  /**
+   * the nano time at which the displayed subtitles should have changed, until the label is painted
+   * with them, or zero
+   */
+  private long pendingCueNanos;
+
   public SubtitleLabel(Player player) {
 
     // because we use an alpha value in the background color the component needs to not be opaque
@@ -47,7 +79,7 @@ public class SubtitleLabel extends JLabel {
 
     applyLabelBackgroundColor(player.getSettings());
     applyFontSettings(player.getSettings());
-    setSubtitle(null);
+    setSubtitles(Collections.emptyList());
 
     // enable to see the borders of the label
     // setBorder(BorderFactory.createLineBorder(Color.yellow)); //NOSONAR
@@ -61,49 +93,99 @@ public class SubtitleLabel extends JLabel {
     setHorizontalAlignment(SwingConstants.CENTER);
 
     player.addListener(new ModelListener());
+    player.addCueListener(
+        p -> {
+          // a preview keeps being displayed while playing until it ends
+          if (!p.isPreviewing()) {
+            pendingCueNanos = p.getCueChangeNanos();
+            setSubtitles(p.getActiveSubtitles());
+          }
+          prefetcher.prefetch(p.getUpcomingSubtitles(LOOKAHEAD));
+        });
+    player.addPreviewListener(
+        p -> setSubtitles(p.isPreviewing() ? p.getPreviewSubtitles() : p.getActiveSubtitles()));
+    // a seek within the displayed subtitles does not change them but the next ones are different
+    player.addPositionListener(
+        p -> {
+          if (p.isSeekOperation()) {
+            prefetcher.prefetch(p.getUpcomingSubtitles(LOOKAHEAD));
+          }
+        });
   }
 
   private void applyLabelBackgroundColor(Settings settings) {
     setBackground(fromColor(BLACK_SEMI_TRANSPARENT, settings.getOpacity()));
+    renderer.setBackground(getBackground());
   }
 
   private void applyFontSettings(Settings settings) {
     setFont(UIUtils.toFont(settings));
+    renderer.setFont(getFont());
   }
 
   @Override
-  protected void paintComponent(Graphics g) {
-    // custom paintComponent to paint the background manually.
-    // This is needed because we want to use a transparent background color
-    g.setColor(getBackground());
-    g.fillRect(0, 0, getWidth(), getHeight());
-    super.paintComponent(g);
+  public Dimension getPreferredSize() {
+    if (image == null) {
+      return super.getPreferredSize();
+    }
+    return new Dimension(image.getWidth(), image.getHeight());
+  }
+
+  @Override
+  public Dimension getMinimumSize() {
+    return getPreferredSize();
   }
 
-  private void setSubtitle(Subtitle subtitle) {
-    if (subtitle == null) {
-      // to always keep the label's height to fit at least one line
-      setText("\n");
-      return;
+  @Override
+  public Dimension getMaximumSize() {
+    return getPreferredSize();
+  }
+
+  @Override
+  protected void paintComponent(Graphics g) {
+    FlightEvents.Paint event = FlightEvents.getDefault().beginPaint();
+    // the image includes the background, which has an alpha value so the label is not opaque
+    if (image != null) {
+      int x = (getWidth() - image.getWidth()) / 2;
+      int y = (getHeight() - image.getHeight()) / 2;
+      g.drawImage(image, x, y, null);
+    }
+    if (event != null) {
+      event.end(getWidth(), getHeight());
+    }
+    if (pendingCueNanos != 0) {
+      PlaybackMetrics.getDefault().recordCueLatency(System.nanoTime() - pendingCueNanos);
+      pendingCueNanos = 0;
     }
-    String text = subtitle.getText().replace("\n", "<br/>");
-    setText("<html>" + text + "</html>");
   }
 
-  private class ModelListener extends Player.Adapter {
-    @Override
-    public void onClockTick(Player player) {
-      Subtitle subtitle = player.getSubtitle();
-      setSubtitle(subtitle);
+  private void setSubtitles(List<Subtitle> subtitles) {
+    setRenderedText(renderer.getText(subtitles));
+  }
+
+  private void setRenderedText(String newText) {
+    this.text = newText;
+    BufferedImage newImage = renderer.render(newText);
+    boolean resized =
+        image == null
+            || image.getWidth() != newImage.getWidth()
+            || image.getHeight() != newImage.getHeight();
+    this.image = newImage;
+    if (resized) {
+      revalidate();
     }
+    repaint();
+  }
 
+  private class ModelListener extends Player.Adapter {
     @Override
     public void onSettingsChanged(Player player) {
       Settings settings = player.getSettings();
       applyFontSettings(settings);
-      Color c = getBackground();
-      Color newColor = new Color(c.getRed(), c.getGreen(), c.getBlue(), settings.getOpacity());
-      setBackground(newColor);
+      applyLabelBackgroundColor(settings);
+      // the cached images were discarded
+      setRenderedText(text);
+      prefetcher.prefetch(player.getUpcomingSubtitles(LOOKAHEAD));
     }
   }
 }
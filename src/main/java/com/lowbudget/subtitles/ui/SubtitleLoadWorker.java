@@ -0,0 +1,162 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.ui;
+
+import com.lowbudget.subtitles.model.Player;
+import com.lowbudget.subtitles.model.SubtitleList;
+import com.lowbudget.subtitles.model.SubtitleLoader;
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import javax.swing.*;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Loads a subtitles file in a background thread.
+ *
+ * <p>The subtitles parsed so far are passed to the player as soon as they are available, so the
+ * user can start playing before the whole file is loaded. The progress is reported to the player
+ * and the operation can be cancelled at any time, in which case the subtitles already loaded are
+ * kept and the user is told that the file was not loaded completely.
+ */
+@Slf4j
+class SubtitleLoadWorker extends SwingWorker<SubtitleList, SubtitleList> {
+
+  private final Player player;
+
+  private final File file;
+
+  /** set when the player has received the first partial list of this file */
+  private boolean started;
+
+  /** the last list passed to the player */
+  private SubtitleList shown;
+
+  /** set when the user cancelled loading, rather than loading another file */
+  private boolean cancelledByUser;
+
+  SubtitleLoadWorker(Player player, File file) {
+    this.player = player;
+    this.file = file;
+
+    // the progress property change listeners are notified in the EDT
+    addPropertyChangeListener(
+        e -> {
+          if ("progress".equals(e.getPropertyName()) && !isDone()) {
+            player.setLoadProgress((Integer) e.getNewValue());
+          }
+        });
+  }
+
+  /** Starts loading and sets the player in the loading state */
+  void start() {
+    player.setLoadProgress(0);
+    execute();
+  }
+
+  /** Stops loading because the user asked to, the subtitles already loaded are kept */
+  void cancelByUser() {
+    cancelledByUser = true;
+    cancel(true);
+  }
+
+  @Override
+  protected SubtitleList doInBackground() {
+    return SubtitleLoader.load(
+        file,
+        new SubtitleLoader.Listener() {
+          @Override
+          public void onProgress(int percent) {
+            setProgress(Math.min(percent, 100));
+          }
+
+          @Override
+          public void onSubtitlesParsed(SubtitleList subtitles) {
+            publish(subtitles);
+          }
+
+          @Override
+          public boolean isCancelled() {
+            return SubtitleLoadWorker.this.isCancelled();
+          }
+        });
+  }
+
+  @Override
+  protected void process(List<SubtitleList> chunks) {
+    // done() may have already run and passed the complete list to the player
+    if (isDone()) {
+      return;
+    }
+    // every chunk contains the previous ones, so only the last one matters
+    show(chunks.get(chunks.size() - 1));
+  }
+
+  @Override
+  protected void done() {
+    player.setLoadProgress(-1);
+    try {
+      SubtitleList subtitles = get();
+      show(subtitles);
+      log.info("Loaded subtitles in {} from file: {}", subtitles.getCharset(), file);
+    } catch (CancellationException e) {
+      log.info("Cancelled loading subtitles from file: {}", file);
+      if (cancelledByUser && started) {
+        JOptionPane.showMessageDialog(
+            null,
+            "Loading "
+                + file.getName()
+                + " was cancelled. Only its first "
+                + shown.size()
+                + " subtitles, up to "
+                + UIUtils.format(shown.getTotalDuration())
+                + ", were loaded.",
+            "Loading cancelled",
+            JOptionPane.WARNING_MESSAGE);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      log.error("Could not load subtitles from file: {}", file, e.getCause());
+      JOptionPane.showMessageDialog(
+          null,
+          "Could not load subtitles from file " + file.getName() + ": " + e.getCause().getMessage(),
+          "Error",
+          JOptionPane.ERROR_MESSAGE);
+    }
+  }
+
+  private void show(SubtitleList subtitles) {
+    shown = subtitles;
+    if (started) {
+      player.extendSubtitles(subtitles);
+    } else {
+      player.loadSubtitles(subtitles);
+      player.setLastFolder(file.getParentFile().getAbsolutePath());
+      started = true;
+    }
+  }
+}
@@ -64,6 +64,7 @@ public class UIUtils {
     return new ImageIcon(image);
   }
 
+  /** Formats the elapsed duration in hours, minutes and seconds i.e. 01:02:03 */
   public static String format(int elapsed) {
     long hours = TimeUnit.MILLISECONDS.toHours(elapsed);
     elapsed -= TimeUnit.HOURS.toMillis(hours);
@@ -73,6 +74,17 @@ public class UIUtils {
 
     long seconds = TimeUnit.MILLISECONDS.toSeconds(elapsed);
 
-    return String.format("%02d:%02d:%02d", hours, minutes, seconds);
+    // this is called while playing, so avoid the parsing and boxing of String.format
+    StringBuilder text = new StringBuilder(8);
+    appendTwoDigits(text, hours).append(':');
+    appendTwoDigits(text, minutes).append(':');
+    return appendTwoDigits(text, seconds).toString();
+  }
+
+  private static StringBuilder appendTwoDigits(StringBuilder text, long value) {
+    if (value < 10) {
+      text.append('0');
+    }
+    return text.append(value);
   }
 }
@@ -0,0 +1,92 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.ui.timer;
+
+/**
+ * Statistics of how late the ticks of a timer fire compared to when they were due. Recording does
+ * not allocate, so it can be done on every tick.
+ */
+public class JitterStatistics {
+
+  private long count;
+
+  private long minNanos = Long.MAX_VALUE;
+
+  private long maxNanos = Long.MIN_VALUE;
+
+  // running mean and sum of squared differences from it (Welford's algorithm)
+  private double meanNanos;
+
+  private double squaredDifferences;
+
+  /** Records a tick that fired the specified number of nanoseconds after it was due */
+  public synchronized void record(long lateNanos) {
+    count++;
+    minNanos = Math.min(minNanos, lateNanos);
+    maxNanos = Math.max(maxNanos, lateNanos);
+    double difference = lateNanos - meanNanos;
+    meanNanos += difference / count;
+    squaredDifferences += difference * (lateNanos - meanNanos);
+  }
+
+  public synchronized void reset() {
+    count = 0;
+    minNanos = Long.MAX_VALUE;
+    maxNanos = Long.MIN_VALUE;
+    meanNanos = 0;
+    squaredDifferences = 0;
+  }
+
+  public synchronized long getCount() {
+    return count;
+  }
+
+  public synchronized long getMinNanos() {
+    return count == 0 ? 0 : minNanos;
+  }
+
+  public synchronized long getMaxNanos() {
+    return count == 0 ? 0 : maxNanos;
+  }
+
+  public synchronized double getMeanNanos() {
+    return meanNanos;
+  }
+
+  public synchronized double getStandardDeviationNanos() {
+    return count < 2 ? 0 : Math.sqrt(squaredDifferences / (count - 1));
+  }
+
+  @Override
+  public synchronized String toString() {
+    return String.format(
+        "ticks: %d, late by min: %.3f ms, mean: %.3f ms, max: %.3f ms, std dev: %.3f ms",
+        count,
+        getMinNanos() / 1e6,
+        meanNanos / 1e6,
+        getMaxNanos() / 1e6,
+        getStandardDeviationNanos() / 1e6);
+  }
+}
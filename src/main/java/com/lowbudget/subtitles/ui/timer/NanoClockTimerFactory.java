@@ -0,0 +1,193 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.ui.timer;
+
+import com.lowbudget.subtitles.metrics.PlaybackMetrics;
+import com.lowbudget.subtitles.model.ClockTimer;
+import java.awt.EventQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Creates timers that measure time with {@link System#nanoTime()}, which unlike the wall clock is
+ * not adjusted while the application runs.
+ *
+ * <p>The ticks are due at fixed offsets from the start, so a tick that fires late does not delay
+ * the following ones. The time reported by each tick is the time since the start minus the time
+ * already reported, so the sum of all ticks is always the exact time since the start. A thread
+ * waits for each tick and the listener is notified in the event dispatch thread.
+ */
+@Slf4j
+public class NanoClockTimerFactory implements ClockTimer.Factory {
+
+  /** how late the ticks of the timers created by this factory fire */
+  @Getter private final JitterStatistics jitterStatistics = new JitterStatistics();
+
+  private final long intervalNanos;
+
+  public NanoClockTimerFactory(int intervalMillis) {
+    this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+  }
+
+  public static NanoClockTimerFactory newFactory() {
+    return new NanoClockTimerFactory(SwingClockTimerFactory.DEFAULT_TIMER_INTERVAL);
+  }
+
+  @Override
+  public ClockTimer createTimer() {
+    return new NanoClockTimer(intervalNanos, jitterStatistics);
+  }
+
+  private static class NanoClockTimer implements ClockTimer {
+
+    private final long intervalNanos;
+
+    private final JitterStatistics jitterStatistics;
+
+    private ClockTimer.Listener timerListener;
+
+    /** the thread that waits for the ticks, a new one is started every time the timer starts */
+    private volatile Thread thread;
+
+    /** the nano time at which the next tick is due */
+    private final AtomicLong deadline = new AtomicLong();
+
+    /**
+     * set while a tick is waiting to be dispatched or its listener runs, so ticks do not pile up if
+     * the EDT is busy
+     */
+    private final AtomicBoolean tickPending = new AtomicBoolean();
+
+    /** the nano time at which the tick waiting to be dispatched was due */
+    private volatile long pendingDue;
+
+    /**
+     * dispatches the pending tick. It is created once, although posting it still allocates an
+     * {@link java.awt.event.InvocationEvent} for every tick
+     */
+    private final Runnable dispatchTick = () -> onTimer(pendingDue);
+
+    private long startNanos;
+
+    /** the time since the start already reported to the listener */
+    private long reportedNanos;
+
+    NanoClockTimer(long intervalNanos, JitterStatistics jitterStatistics) {
+      this.intervalNanos = intervalNanos;
+      this.jitterStatistics = jitterStatistics;
+    }
+
+    private void waitForTicks() {
+      Thread current = Thread.currentThread();
+      while (thread == current) {
+        long due = deadline.get();
+        long now = System.nanoTime();
+        if (now < due) {
+          // wakes up early when the timer is stopped or a tick is scheduled
+          LockSupport.parkNanos(this, due - now);
+          continue;
+        }
+
+        // the next tick is due one interval after this one, skipping any ticks already missed
+        long missed = (now - due) / intervalNanos;
+        deadline.compareAndSet(due, due + (missed + 1) * intervalNanos);
+
+        if (tickPending.compareAndSet(false, true)) {
+          pendingDue = due;
+          EventQueue.invokeLater(dispatchTick);
+        }
+      }
+    }
+
+    private void onTimer(long due) {
+      try {
+        if (thread == null) {
+          // stopped after the tick was dispatched
+          return;
+        }
+        long now = System.nanoTime();
+        jitterStatistics.record(now - due);
+        PlaybackMetrics.getDefault().recordTickJitter(now - due);
+
+        long sinceStart = now - startNanos;
+        long elapsed = sinceStart - reportedNanos;
+        reportedNanos = sinceStart;
+        timerListener.onTimer(elapsed);
+      } finally {
+        // cleared only after the listener, which can schedule the next tick. Until then a deadline
+        // that passes is the one being replaced, so the waiting thread must not post another tick
+        tickPending.set(false);
+      }
+    }
+
+    @Override
+    public void start() {
+      if (thread != null) {
+        return;
+      }
+      startNanos = System.nanoTime();
+      reportedNanos = 0;
+      deadline.set(startNanos + intervalNanos);
+      Thread newThread = new Thread(this::waitForTicks, "clock-timer");
+      newThread.setDaemon(true);
+      newThread.setPriority(Thread.MAX_PRIORITY);
+      thread = newThread;
+      newThread.start();
+    }
+
+    @Override
+    public void stop() {
+      Thread stopped = thread;
+      if (stopped != null) {
+        thread = null;
+        LockSupport.unpark(stopped);
+        log.debug("Timer jitter: {}", jitterStatistics);
+      }
+    }
+
+    @Override
+    public boolean isRunning() {
+      return thread != null;
+    }
+
+    @Override
+    public void setListener(ClockTimer.Listener listener) {
+      this.timerListener = listener;
+    }
+
+    @Override
+    public void schedule(int delayMillis) {
+      Thread current = thread;
+      if (current != null) {
+        deadline.set(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis));
+        LockSupport.unpark(current);
+      }
+    }
+  }
+}
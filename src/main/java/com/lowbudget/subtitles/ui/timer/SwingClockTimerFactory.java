@@ -24,8 +24,10 @@
 
 package com.lowbudget.subtitles.ui.timer;
 
+import com.lowbudget.subtitles.metrics.PlaybackMetrics;
 import com.lowbudget.subtitles.model.ClockTimer;
 import java.awt.event.ActionEvent;
+import java.util.concurrent.TimeUnit;
 import javax.swing.*;
 
 public class SwingClockTimerFactory implements ClockTimer.Factory {
@@ -48,28 +50,41 @@ public class SwingClockTimerFactory implements ClockTimer.Factory {
 
     private final Timer timer;
 
+    private final int interval;
+
     private ClockTimer.Listener timerListener;
 
     private long lastTick;
 
+    /** the nano time at which the next tick is due, used to measure the jitter */
+    private long dueNanos;
+
     public SwingClockTimer(int interval) {
       this.timer = new Timer(interval, this::onTimer);
+      this.interval = interval;
     }
 
     private void onTimer(ActionEvent actionEvent) {
       // we cannot trust that the elapsed duration is equal to the timer's interval
       // the timer has some small delay which accumulates and eventually gets out of sync
       // So we keep track of the last tick to calculate the elapsed duration ourselves
+      long nowNanos = System.nanoTime();
+      PlaybackMetrics.getDefault().recordTickJitter(nowNanos - dueNanos);
+      this.dueNanos = nowNanos + TimeUnit.MILLISECONDS.toNanos(interval);
+
       long now = System.currentTimeMillis();
       long elapsed = now - lastTick;
-      timerListener.onTimer(elapsed);
+      timerListener.onTimer(TimeUnit.MILLISECONDS.toNanos(elapsed));
       this.lastTick = now;
     }
 
     @Override
     public void start() {
+      // a previously scheduled tick may have changed the initial delay
+      timer.setInitialDelay(interval);
       timer.start();
       this.lastTick = System.currentTimeMillis();
+      this.dueNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(interval);
     }
 
     @Override
@@ -87,5 +102,13 @@ public class SwingClockTimerFactory implements ClockTimer.Factory {
       this.timerListener = listener;
     }
 
+    @Override
+    public void schedule(int delayMillis) {
+      // the ticks after the initial delay follow the interval
+      timer.setInitialDelay(delayMillis);
+      timer.restart();
+      this.dueNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+    }
+
   }
 }
@@ -0,0 +1,110 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class IntervalIndexTest {
+
+  @Test
+  void leavesOutSubtitlesThatEndBeforeTheyStart() {
+    int[] starts = {1000, 2000, 3000, 4000, 5000};
+    int[] ends = {1500, 1800, 3500, 3900, 5500};
+    assertFindsLikeScan(starts, ends);
+    assertFound(new IntervalIndex(starts, ends), 2000);
+  }
+
+  @Test
+  void findsZeroLengthSubtitles() {
+    int[] starts = {1000, 2000, 2000, 3000};
+    int[] ends = {1000, 2000, 2500, 3000};
+    assertFindsLikeScan(starts, ends);
+    IntervalIndex index = new IntervalIndex(starts, ends);
+    assertFound(index, 1000, 0);
+    assertFound(index, 2000, 1, 2);
+    assertFound(index, 2001, 2);
+  }
+
+  @Test
+  void findsFullyOverlappingSubtitles() {
+    int[] starts = new int[50];
+    int[] ends = new int[50];
+    Arrays.fill(starts, 1000);
+    Arrays.fill(ends, 2000);
+    assertFindsLikeScan(starts, ends);
+    int[] all = new int[50];
+    Arrays.setAll(all, i -> i);
+    assertFound(new IntervalIndex(starts, ends), 1500, all);
+  }
+
+  @Test
+  void findsRandomSubtitlesLikeScan() {
+    Random random = new Random(42);
+    int[] starts = new int[500];
+    int[] ends = new int[500];
+    for (int i = 0; i < starts.length; i++) {
+      starts[i] = random.nextInt(10_000);
+      // some end before they start, some are displayed for a moment and some for long
+      ends[i] = starts[i] + random.nextInt(2000) - 200;
+    }
+    assertFindsLikeScan(starts, ends);
+  }
+
+  @Test
+  void findsNothingWithoutSubtitles() {
+    assertFound(new IntervalIndex(new int[0], new int[0]), 0);
+  }
+
+  private static void assertFindsLikeScan(int[] starts, int[] ends) {
+    IntervalIndex index = new IntervalIndex(starts, ends);
+    int last = Arrays.stream(ends).max().orElse(0) + 1;
+    for (int elapsed = 0; elapsed <= last; elapsed++) {
+      assertFound(index, elapsed, scan(starts, ends, elapsed));
+    }
+  }
+
+  private static int[] scan(int[] starts, int[] ends, int elapsed) {
+    int[] found = new int[starts.length];
+    int count = 0;
+    for (int i = 0; i < starts.length; i++) {
+      if (starts[i] <= elapsed && elapsed <= ends[i]) {
+        found[count++] = i;
+      }
+    }
+    return Arrays.copyOf(found, count);
+  }
+
+  private static void assertFound(IntervalIndex index, int elapsed, int... expected) {
+    int[] result = new int[expected.length + 64];
+    int count = index.findAll(elapsed, result);
+    assertEquals(expected.length, count, "subtitles displayed at " + elapsed);
+    assertArrayEquals(expected, Arrays.copyOf(result, count), "subtitles displayed at " + elapsed);
+  }
+}
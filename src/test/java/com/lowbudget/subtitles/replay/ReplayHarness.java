@@ -0,0 +1,353 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.replay;
+
+import com.lowbudget.subtitles.model.Clock;
+import com.lowbudget.subtitles.model.Player;
+import com.lowbudget.subtitles.model.Settings;
+import com.lowbudget.subtitles.model.Subtitle;
+import com.lowbudget.subtitles.model.SubtitleList;
+import com.lowbudget.subtitles.model.SubtitleLoader;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Plays subtitles through the {@link Clock} and the {@link Player} on a virtual time, without a
+ * display and as fast as possible, and checks that the displayed subtitles change exactly when the
+ * subtitles say they should.
+ *
+ * <p>The tests replay generated files with it. It can also be run from the command line with {@code
+ * [--fixed-rate] [--interval <millis>] <file>...}, it exits with status 1 if the replay of any file
+ * does not match its expected timeline or if the ticks of the clock and the player that do not
+ * change the displayed subtitles allocate memory.
+ */
+@RequiredArgsConstructor
+public class ReplayHarness {
+
+  /** the number of times the allocations are measured, until one finds none */
+  private static final int MEASUREMENTS = 3;
+
+  private final SubtitleList subtitles;
+
+  private final Clock.TickMode tickMode;
+
+  /** the interval of the timer, used by the clock in the fixed rate mode */
+  private final int interval;
+
+  public ReplayHarness(SubtitleList subtitles) {
+    this(subtitles, Clock.TickMode.CUE_BOUNDARIES, VirtualClockTimerFactory.DEFAULT_TIMER_INTERVAL);
+  }
+
+  @Getter
+  @RequiredArgsConstructor
+  public static class Result {
+
+    /** every change of the displayed subtitles seen by the cue listeners */
+    private final List<CueTransition> transitions;
+
+    /** the position of the player when the clock stopped */
+    private final int finalPosition;
+
+    private final long tickCount;
+
+    /** the duration of the replay in virtual time */
+    private final long virtualNanos;
+
+    /** the duration of the replay in real time */
+    private final long wallNanos;
+
+    /** how many times faster than real time the replay was */
+    public double getSpeedup() {
+      return (double) virtualNanos / Math.max(1, wallNanos);
+    }
+  }
+
+  /** Plays the subtitles from the start to the end and records every cue transition */
+  public Result replay() {
+    List<CueTransition> transitions = new ArrayList<>();
+    long begin = System.nanoTime();
+    Playback playback =
+        new Playback(
+            p ->
+                transitions.add(
+                    new CueTransition(
+                        p.getElapsedDuration(), CueTransition.toIds(p.getActiveSubtitles()))));
+    playback.player.start();
+    playback.play();
+    long wallNanos = System.nanoTime() - begin;
+    return new Result(
+        transitions,
+        playback.player.getElapsedDuration(),
+        playback.timerFactory.getTickCount(),
+        playback.timerFactory.getNanoTime(),
+        wallNanos);
+  }
+
+  /**
+   * Measures the bytes allocated per tick by the clock, the player and listeners that only read
+   * what the player displays, on the ticks that do not change the displayed subtitles. A tick that
+   * does creates the subtitles that start being displayed, so it is not measured. The subtitles
+   * are played once before measuring, so the code has been loaded as during a steady playback.
+   *
+   * <p>This does not include the timer of the application, which posts every tick to the event
+   * dispatch thread, nor the Swing components that display the subtitles and the position.
+   *
+   * @return the bytes per tick, 0 if every tick changed the subtitles, or -1 if the JVM cannot
+   *     measure the allocations of a thread
+   */
+  public double measureAllocationPerTick() {
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (!(threads instanceof com.sun.management.ThreadMXBean)
+        || !((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()) {
+      return -1;
+    }
+    com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+    long thread = Thread.currentThread().getId();
+
+    Player.CueListener reader = Player::getActiveSubtitles;
+    Playback warmUp = new Playback(reader);
+    warmUp.player.start();
+    warmUp.play();
+
+    // the compiler can still be replacing code, which may allocate once, so the best is kept
+    double best = Double.MAX_VALUE;
+    for (int i = 0; i < MEASUREMENTS && best > 0; i++) {
+      Playback playback = new Playback(reader);
+      playback.player.start();
+      // reading the allocated bytes can allocate too, measure how much to exclude it
+      long first = allocations.getThreadAllocatedBytes(thread);
+      long overhead = allocations.getThreadAllocatedBytes(thread) - first;
+      long allocated = 0;
+      long ticks = 0;
+      boolean running = true;
+      while (running) {
+        int version = subtitles.getActiveVersion();
+        long before = allocations.getThreadAllocatedBytes(thread);
+        running = playback.timerFactory.advanceToNextTick();
+        long after = allocations.getThreadAllocatedBytes(thread);
+        if (subtitles.getActiveVersion() == version) {
+          allocated += Math.max(0, after - before - overhead);
+          ticks++;
+        }
+      }
+      best = Math.min(best, (double) allocated / Math.max(1, ticks));
+    }
+    return best;
+  }
+
+  /** A player that plays the subtitles on a virtual clock */
+  private class Playback {
+
+    private final VirtualClockTimerFactory timerFactory = new VirtualClockTimerFactory(interval);
+
+    private final Player player;
+
+    Playback(Player.CueListener listener) {
+      Clock clock = new Clock(timerFactory);
+      clock.setTickMode(tickMode);
+      this.player = new Player(clock, new Settings());
+      player.addCueListener(listener);
+      player.addPositionListener(Player::getElapsedDuration);
+      player.loadSubtitles(subtitles);
+    }
+
+    /** Fires the ticks of the clock until it stops at the end of the subtitles */
+    void play() {
+      while (timerFactory.advanceToNextTick()) {
+        // every tick moves the player
+      }
+    }
+  }
+
+  /**
+   * Checks a replay against the {@link #expectedTimeline(SubtitleList) expected timeline} and that
+   * it played until the {@link #expectedEnd(SubtitleList) end} of the last subtitle.
+   *
+   * @return a description of the first difference or {@code null} if there is none
+   */
+  public String verify(Result result) {
+    String difference = compare(expectedTimeline(subtitles), result.getTransitions());
+    if (difference == null && result.getFinalPosition() != expectedEnd(subtitles)) {
+      difference =
+          "stopped at "
+              + result.getFinalPosition()
+              + " but the last subtitle ends at "
+              + expectedEnd(subtitles);
+    }
+    return difference;
+  }
+
+  /**
+   * Compares the transitions of a replay to the expected ones. In the fixed rate mode a change is
+   * only seen at the next tick, so it can be up to an interval late, and a subtitle displayed for
+   * less than that can be missed altogether.
+   *
+   * @return a description of the first difference or {@code null} if there is none
+   */
+  public String compare(List<CueTransition> expected, List<CueTransition> actual) {
+    int tolerance = tickMode == Clock.TickMode.FIXED_RATE ? interval : 0;
+    for (int i = 0; i < Math.min(expected.size(), actual.size()); i++) {
+      CueTransition e = expected.get(i);
+      CueTransition a = actual.get(i);
+      int late = a.getElapsed() - e.getElapsed();
+      if (!Arrays.equals(e.getIds(), a.getIds()) || late < 0 || late > tolerance) {
+        return "transition " + i + ": expected " + e + " but was " + a;
+      }
+    }
+    if (expected.size() != actual.size()) {
+      return "expected " + expected.size() + " transitions but were " + actual.size();
+    }
+    return null;
+  }
+
+  /**
+   * Returns the latest end of any subtitle, where the playback should stop, computed from the
+   * subtitles themselves instead of {@link SubtitleList#getTotalDuration()}.
+   */
+  public static int expectedEnd(SubtitleList subtitles) {
+    int end = 0;
+    for (int i = 0; i < subtitles.size(); i++) {
+      end = Math.max(end, subtitles.getStore().getEnd(i));
+    }
+    return end;
+  }
+
+  /**
+   * Finds the transitions of the subtitles independently of the {@link SubtitleList} lookups, by
+   * sweeping over the start and end of every subtitle until the {@link #expectedEnd(SubtitleList)
+   * end}. The first transition is the subtitles displayed at the start, even if there are none.
+   */
+  public static List<CueTransition> expectedTimeline(SubtitleList subtitles) {
+    int size = subtitles.size();
+    int[] ids = new int[size];
+    // the displayed subtitles can only change when one starts or right after one ends
+    long[] starts = new long[size];
+    long[] ends = new long[size];
+    for (int i = 0; i < size; i++) {
+      Subtitle subtitle = subtitles.getStore().get(i);
+      ids[i] = subtitle.getId();
+      starts[i] = ((long) subtitle.getStart() << 32) | i;
+      ends[i] = ((long) subtitle.getEnd() + 1 << 32) | i;
+    }
+    Arrays.sort(starts);
+    Arrays.sort(ends);
+
+    List<CueTransition> transitions = new ArrayList<>();
+    // the indices of the displayed subtitles in list order
+    TreeSet<Integer> active = new TreeSet<>();
+    int[] previous = null;
+    int s = 0;
+    int e = 0;
+    int time = 0;
+    // the player stops at the end, so the last subtitle is never seen to disappear
+    int end = expectedEnd(subtitles);
+    while (time <= end) {
+      while (e < size && (int) (ends[e] >> 32) <= time) {
+        active.remove((int) ends[e++]);
+      }
+      while (s < size && (int) (starts[s] >> 32) <= time) {
+        active.add((int) starts[s++]);
+      }
+      int[] current = active.stream().mapToInt(i -> ids[i]).toArray();
+      if (previous == null || !Arrays.equals(previous, current)) {
+        transitions.add(new CueTransition(time, current));
+        previous = current;
+      }
+
+      long next = Long.MAX_VALUE;
+      if (s < size) {
+        next = starts[s] >> 32;
+      }
+      if (e < size) {
+        next = Math.min(next, ends[e] >> 32);
+      }
+      if (next == Long.MAX_VALUE) {
+        break;
+      }
+      time = (int) next;
+    }
+    return Collections.unmodifiableList(transitions);
+  }
+
+  public static void main(String[] args) {
+    Clock.TickMode tickMode = Clock.TickMode.CUE_BOUNDARIES;
+    int interval = VirtualClockTimerFactory.DEFAULT_TIMER_INTERVAL;
+    List<File> files = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      if ("--fixed-rate".equals(args[i])) {
+        tickMode = Clock.TickMode.FIXED_RATE;
+      } else if ("--interval".equals(args[i]) && i + 1 < args.length) {
+        interval = Integer.parseInt(args[++i]);
+      } else {
+        files.add(new File(args[i]));
+      }
+    }
+    if (files.isEmpty()) {
+      System.err.println(
+          "Usage: ReplayHarness [--fixed-rate] [--interval <millis>] <subtitles file>...");
+      System.exit(2);
+    }
+
+    boolean passed = true;
+    for (File file : files) {
+      SubtitleList subtitles = SubtitleLoader.load(file);
+      ReplayHarness harness = new ReplayHarness(subtitles, tickMode, interval);
+      Result result = harness.replay();
+      String difference = harness.verify(result);
+
+      System.out.printf(
+          "%s: %d subtitles, %d transitions, %d ticks, replayed %d s in %d ms (%.0fx)%n",
+          file.getName(),
+          subtitles.size(),
+          result.getTransitions().size(),
+          result.getTickCount(),
+          TimeUnit.NANOSECONDS.toSeconds(result.getVirtualNanos()),
+          TimeUnit.NANOSECONDS.toMillis(result.getWallNanos()),
+          result.getSpeedup());
+      if (difference != null) {
+        System.out.println("  MISMATCH " + difference);
+        passed = false;
+      }
+
+      // the clock and the player must not create garbage while the displayed subtitles remain
+      double allocation = harness.measureAllocationPerTick();
+      if (allocation > 0) {
+        System.out.printf(
+            "  ALLOCATION %.2f bytes per tick that does not change the subtitles%n", allocation);
+        passed = false;
+      }
+    }
+    System.exit(passed ? 0 : 1);
+  }
+}
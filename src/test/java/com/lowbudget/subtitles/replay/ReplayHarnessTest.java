@@ -0,0 +1,125 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.replay;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.lowbudget.subtitles.model.Clock;
+import com.lowbudget.subtitles.model.SubtitleList;
+import com.lowbudget.subtitles.model.SubtitleLoader;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class ReplayHarnessTest {
+
+  private static final int INTERVAL = VirtualClockTimerFactory.DEFAULT_TIMER_INTERVAL;
+
+  @Test
+  void replaysOverlappingAndShortSubtitlesAtCueBoundaries() {
+    assertReplays(load(srt(600, true)), Clock.TickMode.CUE_BOUNDARIES);
+  }
+
+  @Test
+  void replaysOverlappingSubtitlesAtFixedRate() {
+    // subtitles shorter than the interval can be missed at a fixed rate, so there are none
+    assertReplays(load(srt(600, false)), Clock.TickMode.FIXED_RATE);
+  }
+
+  @Test
+  void playsUntilTheLatestEndOfEventsOutOfOrder() {
+    String ass =
+        "[Script Info]\n"
+            + "ScriptType: v4.00+\n\n"
+            + "[Events]\n"
+            + "Format: Layer, Start, End, Style, Name, MarginL, MarginR, MarginV, Effect, Text\n"
+            + "Dialogue: 0,0:00:02.00,0:01:00.00,Default,,0,0,0,,Listed first\n"
+            + "Dialogue: 0,0:00:01.00,0:00:03.00,Default,,0,0,0,,Listed last\n";
+    ReplayHarness.Result result = assertReplays(load(ass), Clock.TickMode.CUE_BOUNDARIES);
+    assertEquals(60_000, result.getFinalPosition());
+  }
+
+  @Test
+  void replaysFileWithoutSubtitles() {
+    String ass =
+        "[Script Info]\n"
+            + "ScriptType: v4.00+\n\n"
+            + "[Events]\n"
+            + "Format: Layer, Start, End, Style, Name, MarginL, MarginR, MarginV, Effect, Text\n";
+    ReplayHarness.Result result = assertReplays(load(ass), Clock.TickMode.CUE_BOUNDARIES);
+    assertEquals(0, result.getFinalPosition());
+  }
+
+  @Test
+  void ticksThatDoNotChangeTheSubtitlesDoNotAllocate() {
+    // at a fixed rate most ticks only move the position
+    ReplayHarness harness =
+        new ReplayHarness(load(srt(600, false)), Clock.TickMode.FIXED_RATE, INTERVAL);
+    double allocation = harness.measureAllocationPerTick();
+    assumeTrue(allocation >= 0, "the JVM cannot measure the allocations of a thread");
+    assertEquals(0, allocation, "bytes allocated per tick");
+  }
+
+  private static ReplayHarness.Result assertReplays(
+      SubtitleList subtitles, Clock.TickMode tickMode) {
+    ReplayHarness harness = new ReplayHarness(subtitles, tickMode, INTERVAL);
+    ReplayHarness.Result result = harness.replay();
+    assertNull(harness.verify(result));
+    return result;
+  }
+
+  private static SubtitleList load(String text) {
+    return SubtitleLoader.load(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  /**
+   * Generates subtitles a second apart. Every seventh one lasts over the next two and, if {@code
+   * shortOnes} is set, every eleventh one is displayed for less than a tick of the timer.
+   */
+  private static String srt(int count, boolean shortOnes) {
+    StringBuilder srt = new StringBuilder();
+    for (int id = 1; id <= count; id++) {
+      int start = id * 1000;
+      int end = start + 800;
+      if (id % 7 == 0) {
+        end = start + 2500;
+      } else if (shortOnes && id % 11 == 0) {
+        end = start + INTERVAL / 4;
+      }
+      srt.append(id).append('\n')
+          .append(time(start)).append(" --> ").append(time(end)).append('\n')
+          .append("Subtitle ").append(id).append("\n\n");
+    }
+    return srt.toString();
+  }
+
+  private static String time(int millis) {
+    return String.format(
+        "%02d:%02d:%02d,%03d",
+        millis / 3_600_000, millis / 60_000 % 60, millis / 1000 % 60, millis % 1000);
+  }
+}
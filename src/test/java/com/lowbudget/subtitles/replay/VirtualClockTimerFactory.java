@@ -0,0 +1,152 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Charalampos Savvidis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.lowbudget.subtitles.replay;
+
+import com.lowbudget.subtitles.model.ClockTimer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import lombok.Getter;
+
+/**
+ * Creates timers that run on a virtual time driven by the caller instead of the system clock. The
+ * time only moves when {@link #advance(long)} or {@link #advanceToNextTick()} is called and every
+ * tick fires exactly at its deadline, on the calling thread, so a replay is deterministic and runs
+ * as fast as the listeners allow.
+ */
+public class VirtualClockTimerFactory implements ClockTimer.Factory {
+
+  /** the same interval as the timers of the application */
+  public static final int DEFAULT_TIMER_INTERVAL = 40;
+
+  private final long intervalNanos;
+
+  private final List<VirtualClockTimer> timers = new ArrayList<>();
+
+  /** the virtual time since the factory was created */
+  @Getter private long nanoTime;
+
+  /** the number of ticks fired by all timers */
+  @Getter private long tickCount;
+
+  public VirtualClockTimerFactory() {
+    this(DEFAULT_TIMER_INTERVAL);
+  }
+
+  public VirtualClockTimerFactory(int intervalMillis) {
+    this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+  }
+
+  @Override
+  public ClockTimer createTimer() {
+    VirtualClockTimer timer = new VirtualClockTimer();
+    timers.add(timer);
+    return timer;
+  }
+
+  /** Moves the time forward firing all ticks that become due in the order of their deadlines */
+  public void advance(long nanos) {
+    long target = nanoTime + nanos;
+    while (fireNext(target)) {
+      // keep firing, a tick can schedule another one before the target
+    }
+    this.nanoTime = target;
+  }
+
+  /**
+   * Moves the time to the next deadline of any running timer and fires it.
+   *
+   * @return {@code false} if no timer is running, in which case the time does not change
+   */
+  public boolean advanceToNextTick() {
+    return fireNext(Long.MAX_VALUE);
+  }
+
+  private boolean fireNext(long limit) {
+    VirtualClockTimer next = null;
+    // indexed so that firing a tick does not allocate an iterator
+    for (int i = 0; i < timers.size(); i++) {
+      VirtualClockTimer timer = timers.get(i);
+      if (timer.running && (next == null || timer.deadline < next.deadline)) {
+        next = timer;
+      }
+    }
+    if (next == null || next.deadline > limit) {
+      return false;
+    }
+    this.nanoTime = next.deadline;
+    this.tickCount++;
+    next.fire();
+    return true;
+  }
+
+  private class VirtualClockTimer implements ClockTimer {
+
+    private Listener listener;
+
+    private boolean running;
+
+    /** the virtual time of the next tick */
+    private long deadline;
+
+    /** the virtual time of the last tick or the start */
+    private long lastTick;
+
+    private void fire() {
+      long elapsed = deadline - lastTick;
+      this.lastTick = deadline;
+      this.deadline += intervalNanos;
+      // the listener may schedule the next tick or stop the timer
+      listener.onTimer(elapsed);
+    }
+
+    @Override
+    public void start() {
+      this.running = true;
+      this.lastTick = nanoTime;
+      this.deadline = nanoTime + intervalNanos;
+    }
+
+    @Override
+    public void stop() {
+      this.running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+      return running;
+    }
+
+    @Override
+    public void setListener(Listener listener) {
+      this.listener = listener;
+    }
+
+    @Override
+    public void schedule(int delayMillis) {
+      this.deadline = nanoTime + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+    }
+  }
+}